@@ -2,6 +2,9 @@ package com.iodigital.assignment.tedtalks.common.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 
 @Data
@@ -9,5 +12,168 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class CsvImportProperties {
     private boolean enabled = false;
     private String path = "classpath:data";
+    /** Records per batch, or the size adaptive batch sizing starts from. */
     private Integer batchSize = 100;
+    private WriteMode writeMode = WriteMode.JPA;
+    private ReaderType reader = ReaderType.MAPPED;
+    /** Compares row fingerprints with the stored talks and only writes the rows that are new or changed. */
+    private boolean skipUnchanged = false;
+    private Executor executor = new Executor();
+    private Chunking chunking = new Chunking();
+    private Pipeline pipeline = new Pipeline();
+    private BatchSizing batchSizing = new BatchSizing();
+    private Governor governor = new Governor();
+    private KeyFilter keyFilter = new KeyFilter();
+    private Startup startup = new Startup();
+    private Inbox inbox = new Inbox();
+    private Queue queue = new Queue();
+    private Progress progress = new Progress();
+
+    public enum WriteMode {
+        /** Duplicate lookup and insert per record through the JPA repository. */
+        JPA,
+        /** Streams each batch through PostgreSQL COPY and merges it into ted_talks in one statement. */
+        COPY,
+        /** Sends each batch as one multi-row INSERT ... ON CONFLICT DO NOTHING RETURNING statement. */
+        INSERT_ON_CONFLICT,
+        /**
+         * Like INSERT_ON_CONFLICT, but refreshes views, likes and link of existing talks when they differ. Files that were
+         * imported before are imported again instead of being rejected.
+         */
+        UPSERT,
+        /**
+         * Loads the whole file into an UNLOGGED staging table of the job and merges it into ted_talks with one
+         * statement at the end, committed together with the job's counters. Files are never split into chunks.
+         */
+        STAGED
+    }
+
+    public enum ReaderType {
+        /** opencsv based reader over a character stream. */
+        OPENCSV,
+        /** Tokenizes the memory-mapped file and only decodes the columns that are imported. */
+        MAPPED
+    }
+
+    @Data
+    public static class Executor {
+        /** Number of imports that run at the same time. */
+        private int maxWorkers = 2;
+        /** Number of accepted imports waiting for a free worker. */
+        private int queueCapacity = 20;
+        private boolean virtualThreads = true;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+    }
+
+    @Data
+    public static class Pipeline {
+        /** Batches waiting in front of each stage. */
+        private int queueCapacity = 4;
+        private int validateParallelism = 2;
+        private int dedupeParallelism = 1;
+        /** Workers looking up the fingerprints of batches, used when skipUnchanged is on. */
+        private int deltaParallelism = 1;
+        /**
+         * With 1, batches are written in file order on the import thread. JPA mode always writes with a single
+         * worker because its lookup before insert is not safe against concurrent inserts of the same talk.
+         */
+        private int writeParallelism = 1;
+    }
+
+    @Data
+    public static class BatchSizing {
+        /**
+         * Resizes the batches of each import between minSize and maxSize, so that writing a batch takes about
+         * targetLatency. Without it every batch has batchSize records.
+         */
+        private boolean adaptive = false;
+        private int minSize = 50;
+        private int maxSize = 5000;
+        private Duration targetLatency = Duration.ofMillis(250);
+        /** Records added to the batch size after a batch was written within targetLatency. */
+        private int increaseStep = 50;
+        /** Factor the batch size is multiplied with after a batch took longer than targetLatency to write. */
+        private double decreaseFactor = 0.5;
+    }
+
+    @Data
+    public static class Governor {
+        /**
+         * Limits the rows per second imports write while API requests or connection pool waits go over their
+         * budget, and lifts the limit again once they are back under it.
+         */
+        private boolean enabled = false;
+        /** Mean latency of API requests, import endpoints excluded, above which imports are slowed down. */
+        private Duration apiLatencyBudget = Duration.ofMillis(200);
+        /** Mean time to get a pooled connection above which imports are slowed down. */
+        private Duration poolWaitBudget = Duration.ofMillis(20);
+        /** How often the limit is adjusted to the latencies measured since. */
+        private Duration adjustInterval = Duration.ofSeconds(1);
+        /** Imports are never slowed down below this many rows per second, across all imports. */
+        private int minRowsPerSecond = 500;
+        /** The limit is lifted once it has doubled past this many rows per second. */
+        private int maxRowsPerSecond = 50_000;
+    }
+
+    @Data
+    public static class KeyFilter {
+        /**
+         * Seeds a Bloom filter with the natural keys of the stored talks when an import starts, so talks it has never
+         * seen skip the duplicate lookup of JPA mode and the fingerprint lookup of skipUnchanged.
+         */
+        private boolean enabled = false;
+        /** Share of new talks that are still looked up, at twice the number of stored talks. */
+        private double falsePositiveRate = 0.01;
+        /** Upper bound of the filter of each import, the false positive rate goes up when it is reached. */
+        private DataSize maxMemory = DataSize.ofMegabytes(64);
+    }
+
+    @Data
+    public static class Chunking {
+        /** Splits files larger than chunkSize into byte ranges that are imported in parallel. */
+        private boolean enabled = false;
+        private DataSize chunkSize = DataSize.ofMegabytes(64);
+        /** Number of chunks imported at the same time, shared by all running imports. */
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Startup {
+        /** Files under path hashed and imported at the same time on startup, largest first. */
+        private int parallelism = 2;
+    }
+
+    @Data
+    public static class Inbox {
+        /** Watches dir and imports the CSV files dropped into it. */
+        private boolean enabled = false;
+        private String dir = "inbox";
+        /** How long the size and modification time of a dropped file must stay the same before it is imported. */
+        private Duration stabilityWindow = Duration.ofSeconds(2);
+        private Duration pollInterval = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class Queue {
+        /** Polls import_jobs for jobs that no worker holds, including jobs left behind by a stopped node. */
+        private boolean enabled = true;
+        private Duration pollInterval = Duration.ofSeconds(5);
+        /** How long a claimed job stays reserved for its worker. The worker renews it every third of this time. */
+        private Duration leaseDuration = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Progress {
+        /** How often progress streams receive a snapshot of a running import, when records were processed since. */
+        private Duration pushInterval = Duration.ofMillis(500);
+        /** Progress streams are closed after this long, even when the import is still running. */
+        private Duration streamTimeout = Duration.ofMinutes(30);
+    }
+
+    public enum RejectionPolicy {
+        /** Marks the import job as failed when all workers are busy and the queue is full. */
+        ABORT,
+        /** Runs the import on the thread that submitted it, slowing the submitter down. */
+        CALLER_RUNS
+    }
 }
@@ -0,0 +1,80 @@
+package com.iodigital.assignment.tedtalks.common.config;
+
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class ImportExecutorConfig {
+
+    public static final String IMPORT_TASK_EXECUTOR = "importTaskExecutor";
+    public static final String IMPORT_CHUNK_EXECUTOR = "importChunkExecutor";
+    public static final String IMPORT_STARTUP_EXECUTOR = "importStartupExecutor";
+
+    /**
+     * Bounded executor that runs CSV imports off the request and startup threads.
+     */
+    @Bean(name = IMPORT_TASK_EXECUTOR)
+    public ThreadPoolTaskExecutor importTaskExecutor(CsvImportProperties csvImportProperties) {
+        CsvImportProperties.Executor properties = csvImportProperties.getExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getMaxWorkers());
+        executor.setMaxPoolSize(properties.getMaxWorkers());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setVirtualThreads(properties.isVirtualThreads());
+        executor.setThreadNamePrefix("csv-import-");
+        executor.setRejectedExecutionHandler(properties.getRejectionPolicy() == CsvImportProperties.RejectionPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Executor for the byte-range chunks of large files. The queue is unbounded since the number of chunks is
+     * already limited by the running imports.
+     */
+    @Bean(name = IMPORT_CHUNK_EXECUTOR)
+    public ThreadPoolTaskExecutor importChunkExecutor(CsvImportProperties csvImportProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(csvImportProperties.getChunking().getParallelism());
+        executor.setMaxPoolSize(csvImportProperties.getChunking().getParallelism());
+        executor.setVirtualThreads(csvImportProperties.getExecutor().isVirtualThreads());
+        executor.setThreadNamePrefix("csv-chunk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Executor for the files imported on startup. Files are queued largest first, so the long imports start early.
+     */
+    @Bean(name = IMPORT_STARTUP_EXECUTOR)
+    public ThreadPoolTaskExecutor importStartupExecutor(CsvImportProperties csvImportProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(csvImportProperties.getStartup().getParallelism());
+        executor.setMaxPoolSize(csvImportProperties.getStartup().getParallelism());
+        executor.setVirtualThreads(csvImportProperties.getExecutor().isVirtualThreads());
+        executor.setThreadNamePrefix("csv-startup-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Declaring an executor switches off Spring Boot's auto-configured one, so it is rebuilt here from the
+     * spring.task.execution settings for everything else that relies on it.
+     */
+    @Lazy
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
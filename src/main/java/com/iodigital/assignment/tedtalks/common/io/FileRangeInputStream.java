@@ -0,0 +1,53 @@
+package com.iodigital.assignment.tedtalks.common.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the bytes of a file between two offsets, [start, end).
+ */
+public class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    public FileRangeInputStream(Path path, long start, long end) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.position = start;
+        this.end = Math.min(end, channel.size());
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int toRead = (int) Math.min(length, end - position);
+        int read = channel.read(ByteBuffer.wrap(bytes, offset, toRead), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -4,6 +4,12 @@ import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportExcept
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -12,25 +18,64 @@ import java.util.Objects;
 
 public class FileUtils {
 
+    private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+
     private FileUtils() {
     }
 
     public static String calculateStreamHash(InputStream inputStream) {
         Objects.requireNonNull(inputStream, "inputStream cannot be null");
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        MessageDigest digest = sha256();
+        try (DigestInputStream dis = new DigestInputStream(inputStream, digest)) {
+            byte[] buffer = new byte[8192];
+            while (dis.read(buffer) != -1) {
+                // the digest is updated by the stream
+            }
+        } catch (IOException e) {
+            throw new TedTalkImportException("Failed to calculate stream hash", e);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-            try (DigestInputStream dis = new DigestInputStream(inputStream, digest)) {
-                byte[] buffer = new byte[8192];
-                while (dis.read(buffer) != -1) {
-                    digest.update(buffer);
-                }
+    /**
+     * Writes the stream to the target file and returns its SHA-256 hash, reading the stream only once.
+     */
+    public static String copyAndHash(InputStream inputStream, Path target) {
+        Objects.requireNonNull(inputStream, "inputStream cannot be null");
+
+        MessageDigest digest = sha256();
+        try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(inputStream, digest));
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += transferred;
             }
+        } catch (IOException e) {
+            throw new TedTalkImportException("Failed to store " + target.getFileName(), e);
+        }
 
-            return HexFormat.of().formatHex(digest.digest());
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        } catch (NoSuchAlgorithmException | IOException e) {
+    /**
+     * Whether the file starts with the gzip magic number, regardless of its name.
+     */
+    public static boolean isGzip(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return inputStream.read() == GZIP_MAGIC_FIRST_BYTE && inputStream.read() == GZIP_MAGIC_SECOND_BYTE;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
             throw new TedTalkImportException("Failed to calculate stream hash", e);
         }
     }
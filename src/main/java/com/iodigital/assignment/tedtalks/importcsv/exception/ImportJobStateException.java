@@ -0,0 +1,11 @@
+package com.iodigital.assignment.tedtalks.importcsv.exception;
+
+/**
+ * A pause, cancel or resume request that the import job's current status does not allow.
+ */
+public class ImportJobStateException extends RuntimeException {
+
+    public ImportJobStateException(String message) {
+        super(message);
+    }
+}
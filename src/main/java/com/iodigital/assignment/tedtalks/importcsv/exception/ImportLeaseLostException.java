@@ -0,0 +1,12 @@
+package com.iodigital.assignment.tedtalks.importcsv.exception;
+
+/**
+ * The worker's lease on an import job ran out and another worker has claimed the job. The import is abandoned without
+ * writing the job's status, which belongs to the worker that imports it now.
+ */
+public class ImportLeaseLostException extends RuntimeException {
+
+    public ImportLeaseLostException(Long jobId) {
+        super("Lost the lease on import job " + jobId + " to another worker");
+    }
+}
@@ -0,0 +1,29 @@
+package com.iodigital.assignment.tedtalks.importcsv.model;
+
+/**
+ * Outcome counters of an import unit, either a whole {@link ImportJob} or one of its {@link ImportJobChunk}s.
+ */
+public interface ImportCounters {
+
+    void processAndSucceed(int count);
+
+    void processAndSkipped(int count);
+
+    void processAndFailed();
+
+    void processAndFailed(int count);
+
+    /** Existing talks whose views, likes or link were refreshed by an upsert. */
+    void processAndUpdated(int count);
+
+    /** Existing talks that were left alone because they are stored with the same values already. */
+    void processAndUnchanged(int count);
+
+    /**
+     * A record that could not be parsed or failed validation. Counted as failed, units that are committed in batches
+     * also keep the row for import_errors.
+     */
+    default void processAndRejected(ImportError error) {
+        processAndFailed();
+    }
+}
@@ -0,0 +1,11 @@
+package com.iodigital.assignment.tedtalks.importcsv.model;
+
+/**
+ * A row an import rejected, as kept in import_errors.
+ *
+ * @param lineNumber number of the record in its file, the header being record 1
+ * @param rawRow     the row as read, or rebuilt from the parsed values when the row failed validation
+ * @param reason     the parse error or the failed constraints
+ */
+public record ImportError(long lineNumber, String rawRow, String reason) {
+}
@@ -24,7 +24,7 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ImportJob {
+public class ImportJob implements ImportCounters {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,11 +38,18 @@ public class ImportJob {
     private Status status;
     @Column(name = "file_path", nullable = false)
     private String filePath;
+    /** Records read up to the checkpoint, the header being the first of them. */
     private int lastProcessedLine;
+    /** Byte offset of the record after lastProcessedLine, null when the reader does not track offsets. */
+    private Long lastProcessedOffset;
     private int processedCount;
     private int skippedCount;
     private int failedCount;
     private int successfulCount;
+    private int updatedCount;
+    private int unchangedCount;
+    /** Jobs with a higher priority are claimed from the queue first. */
+    private int priority;
 
     @UpdateTimestamp
     private LocalDateTime updatedAt;
@@ -53,7 +60,7 @@ public class ImportJob {
     private Long version;
 
     public enum Status {
-        PENDING, IN_PROGRESS, COMPLETED, FAILED
+        PENDING, IN_PROGRESS, PAUSED, COMPLETED, FAILED, CANCELLED
     }
 
     public void processAndSucceed(){
@@ -61,19 +68,68 @@ public class ImportJob {
         this.successfulCount++;
     }
 
+    @Override
+    public void processAndSucceed(int count){
+        processed(count);
+        this.successfulCount += count;
+    }
+
     public void processAndSkipped(){
         processed();
         this.skippedCount++;
     }
 
+    @Override
+    public void processAndSkipped(int count){
+        processed(count);
+        this.skippedCount += count;
+    }
+
+    @Override
     public void processAndFailed(){
         processed();
         this.failedCount++;
 
     }
 
+    @Override
+    public void processAndFailed(int count){
+        processed(count);
+        this.failedCount += count;
+    }
+
+    @Override
+    public void processAndUpdated(int count){
+        processed(count);
+        this.updatedCount += count;
+    }
+
+    @Override
+    public void processAndUnchanged(int count){
+        processed(count);
+        this.unchangedCount += count;
+    }
+
+    /**
+     * Clears the checkpoint and the counters, so the file is imported again from its start.
+     */
+    public void resetProgress() {
+        this.lastProcessedLine = 0;
+        this.lastProcessedOffset = null;
+        this.processedCount = 0;
+        this.successfulCount = 0;
+        this.skippedCount = 0;
+        this.failedCount = 0;
+        this.updatedCount = 0;
+        this.unchangedCount = 0;
+    }
+
     private void processed() {
-        this.processedCount++;
-        this.lastProcessedLine++;
+        processed(1);
+    }
+
+    private void processed(int count) {
+        this.processedCount += count;
+        this.lastProcessedLine += count;
     }
 }
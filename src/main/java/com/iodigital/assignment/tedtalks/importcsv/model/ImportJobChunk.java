@@ -0,0 +1,99 @@
+package com.iodigital.assignment.tedtalks.importcsv.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A byte range of an import file, from the start of a record up to the start of the next chunk.
+ * The processed count and the byte offset after the last processed record are the chunk's checkpoint.
+ */
+@Data
+@Entity
+@Table(name = "import_job_chunks")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobChunk implements ImportCounters {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "import_job_id", nullable = false)
+    private Long importJobId;
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+    @Column(name = "start_offset", nullable = false)
+    private long startOffset;
+    @Column(name = "end_offset", nullable = false)
+    private long endOffset;
+    @Enumerated(EnumType.STRING)
+    private ImportJob.Status status;
+    private Long lastProcessedOffset;
+    /** Records of the file before the chunk, the header included. Null for chunks planned before it was kept. */
+    private Long recordsBefore;
+    private int processedCount;
+    private int skippedCount;
+    private int failedCount;
+    private int successfulCount;
+    private int updatedCount;
+    private int unchangedCount;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Version
+    private Long version;
+
+    @Override
+    public void processAndSucceed(int count) {
+        this.processedCount += count;
+        this.successfulCount += count;
+    }
+
+    @Override
+    public void processAndSkipped(int count) {
+        this.processedCount += count;
+        this.skippedCount += count;
+    }
+
+    @Override
+    public void processAndFailed() {
+        processAndFailed(1);
+    }
+
+    @Override
+    public void processAndFailed(int count) {
+        this.processedCount += count;
+        this.failedCount += count;
+    }
+
+    @Override
+    public void processAndUpdated(int count) {
+        this.processedCount += count;
+        this.updatedCount += count;
+    }
+
+    @Override
+    public void processAndUnchanged(int count) {
+        this.processedCount += count;
+        this.unchangedCount += count;
+    }
+}
@@ -2,10 +2,12 @@ package com.iodigital.assignment.tedtalks.importcsv.model;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
@@ -24,6 +26,7 @@ public class TedTalkRecord {
     String speaker;
 
     @NotNull(message = "Date is required")
+    @PastOrPresent(message = "Date cannot be in the future")
     LocalDate date;
 
     @NotNull(message = "Likes count is required")
@@ -37,6 +40,27 @@ public class TedTalkRecord {
     @NotBlank(message = "Link is required")
     String link;
 
+    /** Number of the record in its file, the header being record 1. */
+    long lineNumber;
+
+    /** The row as read, only kept for a row that could not be parsed. Readers may quote it differently. */
+    @EqualsAndHashCode.Exclude
+    String rawRow;
+
+    /** Why the row could not be parsed, null for a parsed record. */
+    String parseError;
+
+    /**
+     * The empty record a reader returns for a row it could not parse, so the row is counted and reported in order.
+     */
+    public static TedTalkRecord unparseable(long lineNumber, String rawRow, String parseError) {
+        return TedTalkRecord.builder()
+                .lineNumber(lineNumber)
+                .rawRow(rawRow)
+                .parseError(parseError)
+                .build();
+    }
+
     public boolean isEmpty() {
         return title == null || title.isBlank();
     }
@@ -0,0 +1,63 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch size of one import, tuned from the time its batches take to write (AIMD). A batch written within the target
+ * latency grows the size by a fixed step, a slower one cuts it by a factor, so the size backs off quickly when the
+ * database slows down and creeps back up once it recovers.
+ * <p>
+ * Batches are read ahead of the write, so some batches are still on their way when the size changes. Their write
+ * times were measured at their own size and are ignored: a slow batch larger than the current size does not cut it
+ * again, a fast batch smaller than it does not grow it. Without adaptive sizing every batch has the configured size.
+ */
+public class AdaptiveBatchSize {
+
+    private final ImportPipelineMetrics metrics;
+    private final boolean adaptive;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatencyNanos;
+    private final int increaseStep;
+    private final double decreaseFactor;
+    private final AtomicInteger size;
+
+    public AdaptiveBatchSize(CsvImportProperties properties, ImportPipelineMetrics metrics) {
+        CsvImportProperties.BatchSizing sizing = properties.getBatchSizing();
+        this.metrics = metrics;
+        this.adaptive = sizing.isAdaptive();
+        this.minSize = Math.max(sizing.getMinSize(), 1);
+        this.maxSize = Math.max(sizing.getMaxSize(), minSize);
+        this.targetLatencyNanos = sizing.getTargetLatency().toNanos();
+        this.increaseStep = sizing.getIncreaseStep();
+        this.decreaseFactor = sizing.getDecreaseFactor();
+        int initialSize = properties.getBatchSize();
+        this.size = new AtomicInteger(adaptive ? Math.clamp(initialSize, minSize, maxSize) : initialSize);
+    }
+
+    /**
+     * @return the size of the next batch to read
+     */
+    public int next() {
+        int next = size.get();
+        metrics.batchSizeChosen(next);
+        return next;
+    }
+
+    /**
+     * Adjusts the size to the time it took to write a batch of the given number of records.
+     */
+    public void written(int batchSize, long nanos) {
+        if (!adaptive) {
+            return;
+        }
+        size.updateAndGet(current -> {
+            if (nanos <= targetLatencyNanos) {
+                return batchSize >= current ? Math.min(current + increaseStep, maxSize) : current;
+            }
+            return batchSize <= current ? Math.max((int) (current * decreaseFactor), minSize) : current;
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportCounters;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportError;
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of records on its way through the {@link ImportPipeline}, with the outcome counters of its records, the
+ * rows it rejected and the reader position right after it.
+ */
+@Getter
+public class ImportBatch implements ImportCounters {
+
+    private final long sequence;
+    private final int size;
+    private final int recordsRead;
+    private final Long position;
+
+    @Setter
+    private List<TedTalkRecord> records;
+    @Setter
+    private List<TedTalk> talks;
+
+    private int succeededCount;
+    private int skippedCount;
+    private int failedCount;
+    private int updatedCount;
+    private int unchangedCount;
+    private final List<ImportError> errors = new ArrayList<>();
+    private int[] marked;
+
+    public ImportBatch(long sequence, List<TedTalkRecord> records, int recordsRead, Long position) {
+        this.sequence = sequence;
+        this.size = records.size();
+        this.records = records;
+        this.recordsRead = recordsRead;
+        this.position = position;
+    }
+
+    @Override
+    public void processAndSucceed(int count) {
+        this.succeededCount += count;
+    }
+
+    @Override
+    public void processAndSkipped(int count) {
+        this.skippedCount += count;
+    }
+
+    @Override
+    public void processAndFailed() {
+        this.failedCount++;
+    }
+
+    @Override
+    public void processAndFailed(int count) {
+        this.failedCount += count;
+    }
+
+    @Override
+    public void processAndRejected(ImportError error) {
+        this.failedCount++;
+        this.errors.add(error);
+    }
+
+    @Override
+    public void processAndUpdated(int count) {
+        this.updatedCount += count;
+    }
+
+    @Override
+    public void processAndUnchanged(int count) {
+        this.unchangedCount += count;
+    }
+
+    /**
+     * Remembers the write counters, so {@link #reset()} can undo what a write that rolled back counted.
+     */
+    public void mark() {
+        this.marked = new int[]{succeededCount, skippedCount, updatedCount, unchangedCount};
+    }
+
+    public void reset() {
+        this.succeededCount = marked[0];
+        this.skippedCount = marked[1];
+        this.updatedCount = marked[2];
+        this.unchangedCount = marked[3];
+    }
+
+    /**
+     * Adds the outcome of this batch to the counters of the import it belongs to.
+     */
+    public void applyTo(ImportCounters counters) {
+        counters.processAndSucceed(succeededCount);
+        counters.processAndSkipped(skippedCount);
+        counters.processAndFailed(failedCount);
+        counters.processAndUpdated(updatedCount);
+        counters.processAndUnchanged(unchangedCount);
+    }
+}
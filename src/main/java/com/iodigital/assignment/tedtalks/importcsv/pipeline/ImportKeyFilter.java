@@ -0,0 +1,142 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over the natural keys of the talks an import may find stored, see {@link ImportKeyFilterFactory}.
+ * <p>
+ * A talk the filter does not contain is certainly not stored, so its lookup can be skipped. A talk it contains may
+ * still be new, at the false positive rate the filter was sized for. Keys are added and tested from several pipeline
+ * stages at once, the bits are set without locking.
+ */
+public class ImportKeyFilter {
+
+    private static final char SEPARATOR = '\u001f';
+    private static final char NULL = '\u0000';
+    private static final ImportKeyFilter NONE = new ImportKeyFilter(0, 0);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ImportKeyFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Sized for the expected keys at the false positive rate, with no more bits than maxBits.
+     */
+    public static ImportKeyFilter sized(long expectedKeys, double falsePositiveRate, long maxBits) {
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        // Whole words, and not more than an int can index
+        long bits = Math.max(64, Math.min(Math.min(optimalBits, maxBits), (long) Integer.MAX_VALUE * 64) / 64 * 64);
+        int hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bits / expectedKeys * Math.log(2))));
+        return new ImportKeyFilter(bits, hashCount);
+    }
+
+    /**
+     * A filter that contains every key, for imports that run without one.
+     */
+    public static ImportKeyFilter none() {
+        return NONE;
+    }
+
+    public boolean isEnabled() {
+        return bitCount > 0;
+    }
+
+    public void put(String title, String speaker, LocalDate date) {
+        if (!isEnabled()) {
+            return;
+        }
+        long[] hash = hash(title, speaker, date);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, add) -> current | add);
+            }
+        }
+    }
+
+    public void putAll(List<TedTalk> talks) {
+        for (TedTalk talk : talks) {
+            put(talk.getTitle(), talk.getSpeaker(), talk.getDate());
+        }
+    }
+
+    /**
+     * @return false when the talk is certainly not stored, counted as a miss, true otherwise, counted as a hit
+     */
+    public boolean mightContain(TedTalk talk) {
+        boolean contained = recheck(talk);
+        if (isEnabled()) {
+            (contained ? hits : misses).increment();
+        }
+        return contained;
+    }
+
+    /**
+     * Like {@link #mightContain(TedTalk)} without counting, for a talk an earlier stage of the import has tested and
+     * counted already. Its answer may have changed since, when an earlier batch stored the same talk in between.
+     */
+    public boolean recheck(TedTalk talk) {
+        if (!isEnabled()) {
+            return true;
+        }
+        long[] hash = hash(talk.getTitle(), talk.getSpeaker(), talk.getDate());
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Two independent 64-bit hashes, combined into hashCount bit positions
+    private static long[] hash(String title, String speaker, LocalDate date) {
+        StringBuilder key = new StringBuilder(128);
+        append(key, title);
+        append(key, speaker);
+        append(key, date);
+        return MurmurHash3.hash128x64(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(StringBuilder key, Object value) {
+        if (value == null) {
+            key.append(NULL);
+        } else {
+            key.append(value);
+        }
+        key.append(SEPARATOR);
+    }
+}
@@ -0,0 +1,106 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates the {@link ImportKeyFilter} of an import, seeded with the natural keys of all stored talks in one pass over
+ * ted_talks, and publishes its hits and misses as {@value #LOOKUPS}, tagged with the job and the result, while the
+ * import runs.
+ * <p>
+ * The filter is sized for twice the talks PostgreSQL estimates are stored, so the import can add as many again before
+ * the false positive rate goes up, and never uses more than maxMemory. Talks another import stores while this one runs
+ * are not in the filter. In JPA mode such a talk makes its batch fail on the unique constraint, and the batch is
+ * written again with every talk of it looked up.
+ */
+@Slf4j
+@Component
+public class ImportKeyFilterFactory {
+
+    static final String LOOKUPS = "tedtalks.import.key.filter.lookups";
+    private static final int FETCH_SIZE = 10_000;
+    private static final long MIN_EXPECTED_KEYS = 1 << 16;
+    private static final String ESTIMATED_TALKS = """
+            SELECT GREATEST(reltuples, 0)::BIGINT FROM pg_class WHERE oid = 'ted_talks'::regclass
+            """;
+    private static final String KEYS = "SELECT title, speaker, date FROM ted_talks";
+
+    private final CsvImportProperties.KeyFilter properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, List<Meter>> meters = new ConcurrentHashMap<>();
+
+    public ImportKeyFilterFactory(CsvImportProperties csvImportProperties, JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.properties = csvImportProperties.getKeyFilter();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return the seeded filter of the job, or {@link ImportKeyFilter#none()} when filters are disabled
+     */
+    public ImportKeyFilter create(ImportJob job) {
+        if (!properties.isEnabled()) {
+            return ImportKeyFilter.none();
+        }
+        long start = System.nanoTime();
+        long estimatedTalks = Objects.requireNonNullElse(jdbcTemplate.queryForObject(ESTIMATED_TALKS, Long.class), 0L);
+        ImportKeyFilter filter = ImportKeyFilter.sized(Math.max(estimatedTalks * 2, MIN_EXPECTED_KEYS),
+                properties.getFalsePositiveRate(), properties.getMaxMemory().toBytes() * 8);
+        long[] seeded = new long[1];
+        // PostgreSQL only honours the fetch size inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(KEYS);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            filter.put(rs.getString(1), rs.getString(2), rs.getObject(3, LocalDate.class));
+            seeded[0]++;
+        }));
+        log.info("Key filter of import job {} seeded with {} talks in {} ms ({} bits, {} hashes)", job.getId(),
+                seeded[0], (System.nanoTime() - start) / 1_000_000, filter.getBitCount(), filter.getHashCount());
+
+        if (job.getId() != null) {
+            String jobId = job.getId().toString();
+            meters.put(job.getId(), List.of(
+                    FunctionCounter.builder(LOOKUPS, filter, ImportKeyFilter::getHits)
+                            .tags(Tags.of("job", jobId, "result", "hit")).register(meterRegistry),
+                    FunctionCounter.builder(LOOKUPS, filter, ImportKeyFilter::getMisses)
+                            .tags(Tags.of("job", jobId, "result", "miss")).register(meterRegistry)));
+        }
+        return filter;
+    }
+
+    /**
+     * Logs the hits and misses of the job's filter and removes its meters, once the import has ended.
+     */
+    public void release(ImportJob job, ImportKeyFilter filter) {
+        if (!filter.isEnabled()) {
+            return;
+        }
+        log.info("Key filter of import job {}: {} hits, {} misses", job.getId(), filter.getHits(), filter.getMisses());
+        List<Meter> jobMeters = job.getId() != null ? meters.remove(job.getId()) : null;
+        if (jobMeters != null) {
+            jobMeters.forEach(meterRegistry::remove);
+        }
+    }
+}
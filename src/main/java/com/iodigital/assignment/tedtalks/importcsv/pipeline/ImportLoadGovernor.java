@@ -0,0 +1,161 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Slows imports down while they hurt API requests, by limiting the rows per second all imports on this instance write.
+ * <p>
+ * Every adjust interval the mean latency of API requests and the mean time to get a pooled connection since the last
+ * adjustment are compared with their budgets. When either is over, the limit is set to half of what imports wrote per
+ * second in that interval, or half the limit when that is lower, never below minRowsPerSecond. When both are within
+ * budget, which includes an API without requests, the limit doubles and is lifted once it passes maxRowsPerSecond.
+ * <p>
+ * The limit is a token bucket holding at most one second of rows. A batch takes its rows even when the bucket holds
+ * fewer and waits until the debt is paid back, so the batches after it wait their turn.
+ */
+@Slf4j
+@Component
+public class ImportLoadGovernor {
+
+    static final String RATE = "tedtalks.import.governor.rows.per.second";
+    static final String WAIT = "tedtalks.import.governor.wait";
+    static final String POOL_ACQUIRE = "hikaricp.connections.acquire";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final CsvImportProperties.Governor properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+
+    private final LongAdder apiRequests = new LongAdder();
+    private final LongAdder apiNanos = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    // Only touched by adjust(), which the scheduler never runs concurrently
+    private long adjustedAt = System.nanoTime();
+    private long poolAcquires;
+    private double poolWaitNanos;
+
+    // Guarded by this, an infinite rate means imports are not limited
+    private double rowsPerSecond = Double.POSITIVE_INFINITY;
+    private double tokens;
+    private long refilledAt;
+
+    public ImportLoadGovernor(CsvImportProperties csvImportProperties, MeterRegistry meterRegistry) {
+        this.properties = csvImportProperties.getGovernor();
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = meterRegistry.timer(WAIT);
+        meterRegistry.gauge(RATE, this, ImportLoadGovernor::limitForGauge);
+    }
+
+    /**
+     * Waits until the rows may be written. Returns at once while imports are not limited.
+     */
+    public void acquire(int rows) {
+        if (!properties.isEnabled() || rows <= 0) {
+            return;
+        }
+        rowsWritten.add(rows);
+        long waitNanos;
+        synchronized (this) {
+            if (Double.isInfinite(rowsPerSecond)) {
+                return;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(rowsPerSecond, tokens + (now - refilledAt) * rowsPerSecond / NANOS_PER_SECOND);
+            refilledAt = now;
+            tokens -= rows;
+            waitNanos = tokens < 0 ? (long) (-tokens / rowsPerSecond * NANOS_PER_SECOND) : 0;
+        }
+        if (waitNanos > 0) {
+            waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+            try {
+                Thread.sleep(Duration.ofNanos(waitNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Records a completed API request, see {@code ApiLatencyFilter}.
+     */
+    public void apiRequestCompleted(long nanos) {
+        apiRequests.increment();
+        apiNanos.add(nanos);
+    }
+
+    @Scheduled(initialDelayString = "${tedtalks.csv.import.governor.adjustInterval:1s}",
+            fixedDelayString = "${tedtalks.csv.import.governor.adjustInterval:1s}")
+    public void adjust() {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - adjustedAt, 1) / NANOS_PER_SECOND;
+        adjustedAt = now;
+        long requests = apiRequests.sumThenReset();
+        long requestNanos = apiNanos.sumThenReset();
+        long rows = rowsWritten.sumThenReset();
+        double poolWait = meanPoolWaitNanos();
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        boolean apiOverBudget = requests > 0 && requestNanos / requests > properties.getApiLatencyBudget().toNanos();
+        boolean poolOverBudget = poolWait > properties.getPoolWaitBudget().toNanos();
+        synchronized (this) {
+            if (apiOverBudget || poolOverBudget) {
+                // Without imports running they are not what slows the API down
+                if (rows > 0) {
+                    limitTo(Math.max(Math.min(rowsPerSecond, rows / seconds) / 2, properties.getMinRowsPerSecond()), now);
+                }
+            } else if (!Double.isInfinite(rowsPerSecond)) {
+                if (rowsPerSecond * 2 > properties.getMaxRowsPerSecond()) {
+                    log.info("Import limit lifted, API latency and pool wait are within budget");
+                    rowsPerSecond = Double.POSITIVE_INFINITY;
+                } else {
+                    rowsPerSecond *= 2;
+                }
+            }
+        }
+    }
+
+    public synchronized double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    private void limitTo(double limit, long now) {
+        if (Double.isInfinite(rowsPerSecond)) {
+            log.info("Imports limited to {} rows/s, API latency or pool wait is over budget", (long) limit);
+            tokens = 0;
+            refilledAt = now;
+        }
+        rowsPerSecond = limit;
+    }
+
+    // Mean wait of the connections acquired since the last adjustment, over all pools
+    private double meanPoolWaitNanos() {
+        long acquires = 0;
+        double waitNanos = 0;
+        for (Timer timer : meterRegistry.find(POOL_ACQUIRE).timers()) {
+            acquires += timer.count();
+            waitNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long newAcquires = acquires - poolAcquires;
+        double newWaitNanos = waitNanos - poolWaitNanos;
+        poolAcquires = acquires;
+        poolWaitNanos = waitNanos;
+        return newAcquires > 0 ? newWaitNanos / newAcquires : 0;
+    }
+
+    // Zero while imports are not limited
+    private double limitForGauge() {
+        double limit = getRowsPerSecond();
+        return Double.isInfinite(limit) ? 0 : limit;
+    }
+}
@@ -0,0 +1,190 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs one import as a chain of stages joined by bounded queues.
+ * <p>
+ * The source is read on its own thread and every stage runs on as many virtual threads as its parallelism. A full
+ * queue blocks the stage in front of it, so at most (stages + 1) x queueCapacity batches are in memory. Finished
+ * batches are handed to the commit action on the calling thread in source order, which keeps checkpoints
+ * contiguous even when batches overtake each other inside a stage.
+ * <p>
+ * The first failure stops every stage and is rethrown from {@link #run}.
+ */
+public class ImportPipeline {
+
+    public static final String READ_STAGE = "read";
+    public static final String COMMIT_STAGE = "commit";
+
+    private static final ImportBatch END = new ImportBatch(-1, List.of(), 0, null);
+    private static final long POLL_MILLIS = 100;
+
+    private final List<Stage> stages;
+    private final int queueCapacity;
+    private final ImportPipelineMetrics metrics;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public record Stage(String name, int parallelism, Consumer<ImportBatch> action) {
+    }
+
+    @FunctionalInterface
+    public interface BatchSource {
+        /**
+         * @return the next batch, or null when the source is exhausted
+         */
+        ImportBatch next() throws IOException, CsvValidationException;
+    }
+
+    public ImportPipeline(List<Stage> stages, int queueCapacity, ImportPipelineMetrics metrics) {
+        this.stages = stages;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+    }
+
+    public void run(BatchSource source, Consumer<ImportBatch> commit) throws IOException, CsvValidationException {
+        List<BlockingQueue<ImportBatch>> queues = new ArrayList<>();
+        List<String> queueNames = new ArrayList<>();
+        for (Stage stage : stages) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            queueNames.add(stage.name());
+        }
+        queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        queueNames.add(COMMIT_STAGE);
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("csv-pipeline-", 0).factory())) {
+            executor.execute(() -> read(source, queues.getFirst(), queueNames.getFirst()));
+            for (int i = 0; i < stages.size(); i++) {
+                Stage stage = stages.get(i);
+                AtomicInteger runningWorkers = new AtomicInteger(stage.parallelism());
+                for (int worker = 0; worker < stage.parallelism(); worker++) {
+                    int index = i;
+                    executor.execute(() -> work(stage, queues.get(index), queues.get(index + 1), queueNames.get(index + 1), runningWorkers));
+                }
+            }
+            commitInOrder(queues.getLast(), commit);
+        } finally {
+            for (int i = 0; i < queues.size(); i++) {
+                int left = (int) queues.get(i).stream().filter(batch -> batch != END).count();
+                for (int j = 0; j < left; j++) {
+                    metrics.batchDequeued(queueNames.get(i));
+                }
+            }
+        }
+        rethrowFailure();
+    }
+
+    private void read(BatchSource source, BlockingQueue<ImportBatch> output, String outputName) {
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                ImportBatch batch = source.next();
+                if (batch == null) {
+                    put(output, END);
+                    return;
+                }
+                metrics.batchProcessed(READ_STAGE, batch.getSize(), System.nanoTime() - start);
+                put(output, batch);
+                metrics.batchQueued(outputName);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void work(Stage stage, BlockingQueue<ImportBatch> input, BlockingQueue<ImportBatch> output, String outputName,
+                      AtomicInteger runningWorkers) {
+        try {
+            ImportBatch batch;
+            while ((batch = take(input)) != null) {
+                if (batch == END) {
+                    // The last worker of the stage passes the end marker on, the others leave it for their siblings
+                    put(runningWorkers.decrementAndGet() > 0 ? input : output, END);
+                    return;
+                }
+                metrics.batchDequeued(stage.name());
+                long start = System.nanoTime();
+                stage.action().accept(batch);
+                metrics.batchProcessed(stage.name(), batch.getSize(), System.nanoTime() - start);
+                put(output, batch);
+                metrics.batchQueued(outputName);
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void commitInOrder(BlockingQueue<ImportBatch> input, Consumer<ImportBatch> commit) {
+        Map<Long, ImportBatch> finished = new TreeMap<>();
+        long nextSequence = 0;
+        try {
+            ImportBatch batch;
+            while ((batch = take(input)) != null && batch != END) {
+                metrics.batchDequeued(COMMIT_STAGE);
+                finished.put(batch.getSequence(), batch);
+                while (finished.containsKey(nextSequence)) {
+                    ImportBatch next = finished.remove(nextSequence++);
+                    long start = System.nanoTime();
+                    commit.accept(next);
+                    metrics.batchProcessed(COMMIT_STAGE, next.getSize(), System.nanoTime() - start);
+                }
+            }
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private ImportBatch take(BlockingQueue<ImportBatch> queue) throws InterruptedException {
+        while (failure.get() == null) {
+            ImportBatch batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (batch != null) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    private void put(BlockingQueue<ImportBatch> queue, ImportBatch batch) throws InterruptedException {
+        while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new CancellationException("Import pipeline stopped");
+            }
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        failure.compareAndSet(null, e);
+    }
+
+    private void rethrowFailure() throws IOException, CsvValidationException {
+        Throwable e = failure.get();
+        switch (e) {
+            case null -> {
+            }
+            case IOException ioException -> throw ioException;
+            case CsvValidationException validationException -> throw validationException;
+            case RuntimeException runtimeException -> throw runtimeException;
+            case Error error -> throw error;
+            default -> throw new TedTalkImportException("Import pipeline failed: " + e.getMessage(), e);
+        }
+    }
+}
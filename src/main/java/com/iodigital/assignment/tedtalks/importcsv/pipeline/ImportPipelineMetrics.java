@@ -0,0 +1,56 @@
+package com.iodigital.assignment.tedtalks.importcsv.pipeline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-stage throughput, time per batch and queue occupancy of the import pipelines, summed over running imports, and
+ * the batch sizes imports chose.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportPipelineMetrics {
+
+    static final String RECORDS = "tedtalks.import.pipeline.records";
+    static final String BATCH_DURATION = "tedtalks.import.pipeline.batch.duration";
+    static final String QUEUE_SIZE = "tedtalks.import.pipeline.queue.size";
+    static final String BATCH_SIZE = "tedtalks.import.batch.size";
+    static final String CURRENT_BATCH_SIZE = "tedtalks.import.batch.size.current";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> queueSizes = new ConcurrentHashMap<>();
+    private final AtomicInteger currentBatchSize = new AtomicInteger();
+
+    public void batchQueued(String stage) {
+        queueSize(stage).incrementAndGet();
+    }
+
+    public void batchDequeued(String stage) {
+        queueSize(stage).decrementAndGet();
+    }
+
+    public void batchProcessed(String stage, int records, long nanos) {
+        meterRegistry.counter(RECORDS, "stage", stage).increment(records);
+        meterRegistry.timer(BATCH_DURATION, "stage", stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the size of a batch that is about to be read. The current size gauge follows the last import to choose.
+     */
+    public void batchSizeChosen(int size) {
+        meterRegistry.summary(BATCH_SIZE).record(size);
+        meterRegistry.gauge(CURRENT_BATCH_SIZE, currentBatchSize).set(size);
+    }
+
+    private AtomicInteger queueSize(String stage) {
+        return queueSizes.computeIfAbsent(stage,
+                name -> meterRegistry.gauge(QUEUE_SIZE, Tags.of("stage", name), new AtomicInteger()));
+    }
+}
@@ -0,0 +1,167 @@
+package com.iodigital.assignment.tedtalks.importcsv.progress;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportCounters;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of an import running on this instance.
+ * <p>
+ * Counters are added once a batch has been committed, so they never run ahead of the stored job. They are safe to
+ * update from the chunk workers of one job at the same time. The rate and the estimate only cover what was imported
+ * since the import started here, a resumed job is not credited with the records of its earlier run.
+ */
+public class ImportProgress implements ImportCounters {
+
+    private final Long jobId;
+    private final String fileName;
+    private final long totalBytes;
+    private final long startedAt = System.nanoTime();
+    private final int initialProcessedCount;
+
+    private final LongAdder successfulCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder updatedCount = new LongAdder();
+    private final LongAdder unchangedCount = new LongAdder();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong publishedProcessedCount = new AtomicLong(-1);
+    private volatile long initialBytesRead;
+    private volatile Status status;
+
+    /**
+     * @param totalBytes size of the file being read, negative when unknown
+     */
+    public ImportProgress(ImportJob job, long totalBytes) {
+        this.jobId = job.getId();
+        this.fileName = job.getFileName();
+        this.totalBytes = totalBytes;
+        this.status = Status.IN_PROGRESS;
+        this.initialProcessedCount = job.getProcessedCount();
+        successfulCount.add(job.getSuccessfulCount());
+        skippedCount.add(job.getSkippedCount());
+        failedCount.add(job.getFailedCount());
+        updatedCount.add(job.getUpdatedCount());
+        unchangedCount.add(job.getUnchangedCount());
+        if (job.getLastProcessedOffset() != null) {
+            resumedAt(job.getLastProcessedOffset());
+        }
+    }
+
+    /**
+     * Snapshot of a job that is not running on this instance, taken from its stored counters.
+     */
+    public static ImportJobProgressDTO snapshotOf(ImportJob job) {
+        return ImportJobProgressDTO.builder()
+                .jobId(job.getId())
+                .fileName(job.getFileName())
+                .status(job.getStatus())
+                .processedCount(job.getProcessedCount())
+                .successfulCount(job.getSuccessfulCount())
+                .skippedCount(job.getSkippedCount())
+                .failedCount(job.getFailedCount())
+                .updatedCount(job.getUpdatedCount())
+                .unchangedCount(job.getUnchangedCount())
+                .build();
+    }
+
+    @Override
+    public void processAndSucceed(int count) {
+        successfulCount.add(count);
+    }
+
+    @Override
+    public void processAndSkipped(int count) {
+        skippedCount.add(count);
+    }
+
+    @Override
+    public void processAndFailed() {
+        failedCount.increment();
+    }
+
+    @Override
+    public void processAndFailed(int count) {
+        failedCount.add(count);
+    }
+
+    @Override
+    public void processAndUpdated(int count) {
+        updatedCount.add(count);
+    }
+
+    @Override
+    public void processAndUnchanged(int count) {
+        unchangedCount.add(count);
+    }
+
+    /**
+     * Marks the bytes before the checkpoint a resumed import starts from as read, without counting them in the rate.
+     */
+    public void resumedAt(long bytes) {
+        initialBytesRead = bytes;
+        bytesRead.set(bytes);
+    }
+
+    /** Moves the read position of a reader that goes through the file from start to end. */
+    public void advanceTo(long position) {
+        bytesRead.set(position);
+    }
+
+    /** Adds bytes read by one of several readers that share the file. */
+    public void advanceBy(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * @return true when records were processed since the last call
+     */
+    boolean markPublished() {
+        long processed = processedCount();
+        return publishedProcessedCount.getAndSet(processed) != processed;
+    }
+
+    public ImportJobProgressDTO snapshot() {
+        long processed = processedCount();
+        double elapsedSeconds = Math.max(System.nanoTime() - startedAt, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        return ImportJobProgressDTO.builder()
+                .jobId(jobId)
+                .fileName(fileName)
+                .status(status)
+                .processedCount((int) processed)
+                .successfulCount(successfulCount.intValue())
+                .skippedCount(skippedCount.intValue())
+                .failedCount(failedCount.intValue())
+                .updatedCount(updatedCount.intValue())
+                .unchangedCount(unchangedCount.intValue())
+                .rowsPerSecond((processed - initialProcessedCount) / elapsedSeconds)
+                .etaSeconds(etaSeconds(elapsedSeconds))
+                .build();
+    }
+
+    private Long etaSeconds(double elapsedSeconds) {
+        if (status != Status.IN_PROGRESS) {
+            return status == Status.COMPLETED ? 0L : null;
+        }
+        long read = bytesRead.get();
+        double bytesPerSecond = (read - initialBytesRead) / elapsedSeconds;
+        // Readers that do not track their byte position (gzip, opencsv) leave the rate at zero
+        if (totalBytes <= 0 || bytesPerSecond <= 0) {
+            return null;
+        }
+        return (long) Math.ceil(Math.max(totalBytes - read, 0) / bytesPerSecond);
+    }
+
+    private long processedCount() {
+        return successfulCount.sum() + skippedCount.sum() + failedCount.sum() + updatedCount.sum() + unchangedCount.sum();
+    }
+}
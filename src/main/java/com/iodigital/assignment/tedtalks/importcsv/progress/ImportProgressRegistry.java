@@ -0,0 +1,160 @@
+package com.iodigital.assignment.tedtalks.importcsv.progress;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Progress of the imports running on this instance, and the SSE streams that follow them.
+ * <p>
+ * Imports add to their {@link ImportProgress} as batches commit, readers get snapshots from memory and never query
+ * import_jobs while a job runs. Subscribers receive a snapshot when they subscribe, then one every push interval
+ * while records are processed, and a last one when the import ends.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportProgressRegistry {
+
+    private static final String PROGRESS_EVENT = "progress";
+
+    private final CsvImportProperties csvImportProperties;
+
+    private final Map<Long, ImportProgress> running = new ConcurrentHashMap<>();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public ImportProgress start(ImportJob job) {
+        ImportProgress progress = new ImportProgress(job, fileSize(job));
+        running.put(job.getId(), progress);
+        return progress;
+    }
+
+    /**
+     * Starts the progress of a running job over, for an import that begins again from the start of its file.
+     */
+    public void restart(ImportJob job) {
+        running.computeIfPresent(job.getId(), (id, progress) -> new ImportProgress(job, fileSize(job)));
+    }
+
+    /**
+     * @return the progress of the running job, or one nobody reads when the job was not started through the registry
+     */
+    public ImportProgress progressOf(ImportJob job) {
+        ImportProgress progress = job.getId() != null ? running.get(job.getId()) : null;
+        return progress != null ? progress : new ImportProgress(job, -1);
+    }
+
+    /**
+     * Stops tracking the job and sends its final snapshot to its subscribers.
+     */
+    public void finish(ImportJob job) {
+        ImportProgress progress = running.remove(job.getId());
+        List<SseEmitter> emitters = subscribers.remove(job.getId());
+        if (emitters == null) {
+            return;
+        }
+        ImportJobProgressDTO snapshot;
+        if (progress != null) {
+            progress.setStatus(job.getStatus());
+            snapshot = progress.snapshot();
+        } else {
+            snapshot = ImportProgress.snapshotOf(job);
+        }
+        for (SseEmitter emitter : emitters) {
+            if (send(job.getId(), emitter, snapshot)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    public Optional<ImportJobProgressDTO> find(Long jobId) {
+        return Optional.ofNullable(running.get(jobId)).map(ImportProgress::snapshot);
+    }
+
+    /**
+     * Streams the progress of a job. A job that is not running here starts from its stored counters, and the stream
+     * ends right away when the job has already ended.
+     */
+    public SseEmitter subscribe(Long jobId, Supplier<ImportJobProgressDTO> storedProgress) {
+        SseEmitter emitter = new SseEmitter(csvImportProperties.getProgress().getStreamTimeout().toMillis());
+        emitter.onCompletion(() -> unsubscribe(jobId, emitter));
+        emitter.onTimeout(() -> unsubscribe(jobId, emitter));
+        emitter.onError(e -> unsubscribe(jobId, emitter));
+        // Registered before the snapshot is taken, so a job that ends in between still completes this stream
+        subscribers.compute(jobId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+
+        ImportProgress progress = running.get(jobId);
+        ImportJobProgressDTO snapshot = progress != null ? progress.snapshot() : storedProgress.get();
+        if (send(jobId, emitter, snapshot) && isEnded(snapshot.getStatus())) {
+            unsubscribe(jobId, emitter);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    @Scheduled(initialDelayString = "${tedtalks.csv.import.progress.pushInterval:500ms}",
+            fixedDelayString = "${tedtalks.csv.import.progress.pushInterval:500ms}")
+    public void publish() {
+        subscribers.forEach((jobId, emitters) -> {
+            ImportProgress progress = running.get(jobId);
+            if (progress == null || !progress.markPublished()) {
+                return;
+            }
+            ImportJobProgressDTO snapshot = progress.snapshot();
+            emitters.forEach(emitter -> send(jobId, emitter, snapshot));
+        });
+    }
+
+    private boolean send(Long jobId, SseEmitter emitter, ImportJobProgressDTO snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(PROGRESS_EVENT).data(snapshot));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the stream is of no use to anyone
+            log.debug("Dropping progress stream of import job {} - cause: {}", jobId, e.getMessage());
+            unsubscribe(jobId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(Long jobId, SseEmitter emitter) {
+        subscribers.computeIfPresent(jobId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private static boolean isEnded(Status status) {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.PAUSED
+                || status == Status.CANCELLED;
+    }
+
+    private static long fileSize(ImportJob job) {
+        try {
+            return Files.size(Path.of(job.getFilePath()));
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
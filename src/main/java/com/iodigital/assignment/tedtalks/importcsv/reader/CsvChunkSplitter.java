@@ -0,0 +1,92 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV file into byte ranges that each start at the beginning of a record.
+ * <p>
+ * Whether a newline ends a record depends on every quote before it (RFC 4180), so the file is scanned once
+ * from the start while tracking the quote state. This only looks at raw bytes and is far cheaper than parsing.
+ */
+public final class CsvChunkSplitter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CsvChunkSplitter() {
+    }
+
+    /**
+     * @param headerLength number of bytes of the header record, including its line break
+     * @param ranges       ranges of data records, each at least targetChunkSize bytes long except the last
+     */
+    public record ChunkPlan(long headerLength, List<ByteRange> ranges) {
+    }
+
+    /**
+     * @param recordsBefore records of the file before start, the header included, so the first record of the range
+     *                      is record recordsBefore + 1 of the file
+     */
+    public record ByteRange(long start, long end, long recordsBefore) {
+    }
+
+    public static ChunkPlan split(Path file, long targetChunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            List<ByteRange> ranges = new ArrayList<>();
+            boolean inQuotes = false;
+            // Blank lines are not records, the readers skip them without counting them
+            boolean lineHasContent = false;
+            long records = 0;
+            long headerLength = -1;
+            long chunkStart = size;
+            long chunkRecordsBefore = 0;
+            long position = 0;
+
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte current = buffer.get();
+                    position++;
+                    if (current == '"') {
+                        // An escaped quote ("") toggles twice and leaves the state unchanged
+                        inQuotes = !inQuotes;
+                    } else if (current == '\n' && !inQuotes) {
+                        if (lineHasContent) {
+                            records++;
+                            lineHasContent = false;
+                        }
+                        if (headerLength < 0) {
+                            headerLength = position;
+                            chunkStart = position;
+                            chunkRecordsBefore = records;
+                        } else if (position - chunkStart >= targetChunkSize) {
+                            ranges.add(new ByteRange(chunkStart, position, chunkRecordsBefore));
+                            chunkStart = position;
+                            chunkRecordsBefore = records;
+                        }
+                        continue;
+                    }
+                    if (current != '\r') {
+                        lineHasContent = true;
+                    }
+                }
+                buffer.clear();
+            }
+
+            if (headerLength < 0) {
+                headerLength = size;
+            }
+            if (chunkStart < size) {
+                ranges.add(new ByteRange(chunkStart, size, chunkRecordsBefore));
+            }
+            return new ChunkPlan(headerLength, ranges);
+        }
+    }
+}
@@ -1,17 +1,70 @@
 package com.iodigital.assignment.tedtalks.importcsv.reader;
 
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.common.io.FileRangeInputStream;
+import com.iodigital.assignment.tedtalks.common.io.FileUtils;
 import com.opencsv.exceptions.CsvValidationException;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
 
 @Component
+@RequiredArgsConstructor
 public class CsvReaderFactory {
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final CsvImportProperties csvImportProperties;
+
     public TedTalkCSVReader createTedTalkReader(InputStream inputStream) throws IOException, CsvValidationException {
         InputStreamReader reader = new InputStreamReader(inputStream);
         return new TedTalkCSVReader(reader);
     }
+
+    /**
+     * Gzip files are inflated while they are read. They have no byte offsets to resume from, so a resumed import
+     * skips the records it already processed.
+     */
+    public TedTalkReader createTedTalkReader(Path file) throws IOException, CsvValidationException {
+        if (FileUtils.isGzip(file)) {
+            InputStream inputStream = Files.newInputStream(file);
+            try {
+                return closeOnFailure(new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE));
+            } catch (IOException | RuntimeException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+        if (csvImportProperties.getReader() == CsvImportProperties.ReaderType.MAPPED) {
+            return new MappedTedTalkReader(file);
+        }
+        return closeOnFailure(Files.newInputStream(file));
+    }
+
+    /**
+     * Reader for the records in [start, end) of a file, using the header in its first headerLength bytes.
+     */
+    public TedTalkReader createTedTalkReader(Path file, long headerLength, long start, long end) throws IOException, CsvValidationException {
+        if (csvImportProperties.getReader() == CsvImportProperties.ReaderType.MAPPED) {
+            return new MappedTedTalkReader(file, start, end, MappedTedTalkReader.DEFAULT_WINDOW_SIZE);
+        }
+        return closeOnFailure(new SequenceInputStream(new FileRangeInputStream(file, 0, headerLength),
+                new FileRangeInputStream(file, start, end)));
+    }
+
+    private TedTalkReader closeOnFailure(InputStream inputStream) throws IOException, CsvValidationException {
+        try {
+            return createTedTalkReader(inputStream);
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
 }
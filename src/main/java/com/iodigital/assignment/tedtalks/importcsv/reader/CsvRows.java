@@ -0,0 +1,39 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+/**
+ * Formats fields as an RFC 4180 row, quoting only the fields that need it, so rows read the same way they were read.
+ */
+public final class CsvRows {
+
+    private CsvRows() {
+    }
+
+    public static String format(String... fields) {
+        return format(fields, fields.length);
+    }
+
+    /**
+     * @param count number of fields to format, which may be less than fields.length
+     */
+    public static String format(String[] fields, int count) {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            appendField(row, fields[i]);
+        }
+        return row.toString();
+    }
+
+    private static void appendField(StringBuilder row, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            row.append(value);
+            return;
+        }
+        row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
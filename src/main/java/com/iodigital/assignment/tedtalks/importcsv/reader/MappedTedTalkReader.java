@@ -0,0 +1,298 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.DataParsingException;
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 reader that tokenizes a memory-mapped file in place.
+ * <p>
+ * Field boundaries are found on the raw bytes and only the columns a {@link TedTalkRecord} keeps are decoded into
+ * strings. Quoted line breaks are returned as {@code \n} and a lone {@code \r} ends a line, the same way the opencsv
+ * based {@link TedTalkCSVReader} reads them, so both readers produce the same records.
+ * <p>
+ * The file is mapped in windows of at most {@code windowSize} bytes. A record that crosses the end of a window is
+ * tokenized again from a window that starts at the record.
+ */
+public class MappedTedTalkReader implements TedTalkReader {
+
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private final TedTalkRecordParser recordParser;
+    private final int[] requiredColumns;
+    private final String[] row;
+
+    private long end;
+    private long position;
+    private long recordsRead;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    // Bounds and fields of the last tokenized record, as offsets into the window
+    private int recordStart;
+    private int recordEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldsEscaped = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    public MappedTedTalkReader(Path file) throws IOException, CsvValidationException {
+        this(file, -1, -1, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Reads the header at the start of the file, then only the records in [start, end).
+     * A negative start reads all records after the header.
+     */
+    public MappedTedTalkReader(Path file, long start, long end, long windowSize) throws IOException, CsvValidationException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        try {
+            this.end = channel.size();
+            this.recordParser = new TedTalkRecordParser(readHeader());
+            this.requiredColumns = TedTalkRecordParser.REQUIRED_HEADERS.stream().mapToInt(recordParser::indexOf).toArray();
+            this.row = new String[Arrays.stream(requiredColumns).max().orElse(0) + 1];
+            if (start >= 0) {
+                this.position = start;
+                this.end = Math.min(end, this.end);
+            }
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private String[] readHeader() throws IOException {
+        if (!nextRecord()) {
+            return null;
+        }
+        String[] headers = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            headers[i] = decode(i);
+        }
+        return headers;
+    }
+
+    @Override
+    public TedTalkRecord readNextTedTalk() throws IOException {
+        if (!nextRecord()) {
+            return null;
+        }
+        for (int column : requiredColumns) {
+            if (column < fieldCount) {
+                row[column] = decode(column);
+            }
+        }
+
+        try {
+            TedTalkRecord talkRecord = recordParser.parse(row, fieldCount);
+            talkRecord.setLineNumber(recordsRead);
+            return talkRecord;
+        } catch (DataParsingException e) {
+            return TedTalkRecord.unparseable(recordsRead, rawRecord(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void skip(int numberOfRecords) throws IOException {
+        for (int i = 0; i < numberOfRecords && nextRecord(); i++) {
+            // only tokenized, nothing is decoded
+        }
+    }
+
+    @Override
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void seek(long position, long recordsRead) throws IOException {
+        if (position < 0 || position > end) {
+            throw new IOException("Offset " + position + " is outside of the readable range ending at " + end);
+        }
+        this.position = position;
+        this.recordsRead = recordsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean nextRecord() throws IOException {
+        while (position < end) {
+            if (window == null || position < windowStart || position >= windowEnd) {
+                map(position);
+            }
+            int recordEnd;
+            while ((recordEnd = tokenize((int) (position - windowStart), (int) (Math.min(end, windowEnd) - windowStart), windowEnd >= end)) < 0) {
+                if (windowStart == position) {
+                    throw new IOException("CSV record at offset " + position + " is larger than the mapping window of " + windowSize + " bytes");
+                }
+                map(position);
+            }
+            recordStart = (int) (position - windowStart);
+            this.recordEnd = recordEnd;
+            boolean blankLine = isLineBreak(window.get(recordStart));
+            position = windowStart + recordEnd;
+            if (!blankLine) { // opencsv skips blank lines without counting them
+                recordsRead++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, end - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowEnd = start + length;
+    }
+
+    /**
+     * Finds the fields of the record starting at {@code index}.
+     *
+     * @return the index after the record's line break, or -1 when the record continues past {@code limit}
+     */
+    private int tokenize(int index, int limit, boolean lastWindow) throws IOException {
+        fieldCount = 0;
+        int i = index;
+        while (true) {
+            int start = i;
+            int fieldEnd;
+            boolean escaped = false;
+            if (i < limit && window.get(i) == '"') {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (lastWindow) {
+                            throw new IOException("Un-terminated quoted field at end of CSV file");
+                        }
+                        return -1;
+                    }
+                    byte current = window.get(i);
+                    if (current == '"') {
+                        if (i + 1 >= limit && !lastWindow) {
+                            return -1;
+                        }
+                        if (i + 1 < limit && window.get(i + 1) == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (current == '\r') {
+                        escaped = true;
+                    }
+                    i++;
+                }
+                fieldEnd = i++;
+                while (i < limit && !isDelimiter(window.get(i))) {
+                    i++;
+                }
+            } else {
+                while (i < limit && !isDelimiter(window.get(i))) {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            addField(start, fieldEnd, escaped);
+
+            if (i >= limit) {
+                return lastWindow ? i : -1;
+            }
+            byte delimiter = window.get(i++);
+            if (delimiter == ',') {
+                continue;
+            }
+            if (delimiter == '\r') {
+                if (i >= limit) {
+                    return lastWindow ? i : -1;
+                }
+                if (window.get(i) == '\n') {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+
+    private static boolean isDelimiter(byte value) {
+        return value == ',' || isLineBreak(value);
+    }
+
+    private static boolean isLineBreak(byte value) {
+        return value == '\n' || value == '\r';
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldsEscaped = Arrays.copyOf(fieldsEscaped, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldsEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    /**
+     * The last tokenized record as it is in the file, without its line break.
+     */
+    private String rawRecord() {
+        int end = recordEnd;
+        while (end > recordStart && isLineBreak(window.get(end - 1))) {
+            end--;
+        }
+        byte[] bytes = new byte[end - recordStart];
+        window.get(recordStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String decode(int field) {
+        int length = fieldEnds[field] - fieldStarts[field];
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(fieldStarts[field], scratch, 0, length);
+        if (!fieldsEscaped[field]) {
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int out = 0;
+        for (int in = 0; in < length; in++) {
+            byte current = scratch[in];
+            if (current == '"') {
+                in++; // "" is an escaped quote
+            } else if (current == '\r') {
+                current = '\n';
+                if (in + 1 < length && scratch[in + 1] == '\n') {
+                    in++;
+                }
+            }
+            scratch[out++] = current;
+        }
+        return new String(scratch, 0, out, StandardCharsets.UTF_8);
+    }
+}
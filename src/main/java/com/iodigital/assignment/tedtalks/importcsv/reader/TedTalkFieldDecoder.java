@@ -0,0 +1,124 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.DataParsingException;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * Decodes the numeric and date columns of a CSV row without intermediate strings.
+ * <p>
+ * The common shapes, digits with thousands separators and "MMMM yyyy" dates, are decoded in a single pass over the
+ * characters. Anything else goes through the original regex and {@link DateTimeFormatter} based parsing, so values
+ * are accepted and rejected with the same {@link DataParsingException} messages as before.
+ */
+public final class TedTalkFieldDecoder {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+    private static final String[] MONTH_NAMES = new String[12];
+    private static final long MAX_BEFORE_DIGIT = Long.MAX_VALUE / 10;
+
+    static {
+        for (Month month : Month.values()) {
+            MONTH_NAMES[month.ordinal()] = month.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+        }
+    }
+
+    private TedTalkFieldDecoder() {
+    }
+
+    /**
+     * Parses a non-negative count such as {@code "1,234,567"}. Commas and whitespace are ignored.
+     *
+     * @param value     the trimmed field value
+     * @param fieldName the column name used in error messages
+     */
+    public static long parseLong(String value, String fieldName) throws DataParsingException {
+        long result = 0;
+        boolean hasDigits = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (result > MAX_BEFORE_DIGIT || (result == MAX_BEFORE_DIGIT && digit > Long.MAX_VALUE % 10)) {
+                    return parseLongFallback(value, fieldName);
+                }
+                result = result * 10 + digit;
+                hasDigits = true;
+            } else if (c != ',' && !isRegexWhitespace(c)) {
+                return parseLongFallback(value, fieldName);
+            }
+        }
+        return hasDigits ? result : parseLongFallback(value, fieldName);
+    }
+
+    /**
+     * Parses a "MMMM yyyy" date, such as {@code "May 2023"}, to the first day of that month.
+     *
+     * @param value the trimmed field value
+     */
+    public static LocalDate parseDate(String value) throws DataParsingException {
+        int separator = value.length() - 5;
+        if (separator > 0 && value.charAt(separator) == ' ') {
+            int month = monthOf(value, separator);
+            int year = fourDigitYear(value, separator + 1);
+            if (month > 0 && year > 0) {
+                return LocalDate.of(year, month, 1);
+            }
+        }
+        return parseDateFallback(value);
+    }
+
+    private static int monthOf(String value, int length) {
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            String name = MONTH_NAMES[i];
+            if (name.length() == length && value.startsWith(name)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int fourDigitYear(String value, int start) {
+        int year = 0;
+        for (int i = start; i < start + 4; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            year = year * 10 + (c - '0');
+        }
+        return year;
+    }
+
+    // The characters matched by \s in java.util.regex
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static long parseLongFallback(String value, String fieldName) throws DataParsingException {
+        try {
+            long parsedValue = Long.parseLong(value.replaceAll("[,\\s]", "")); // Remove commas and spaces
+            if (parsedValue < 0) {
+                throw new DataParsingException("Field '" + fieldName + "' must be non-negative, got: " + value);
+            }
+            return parsedValue;
+        } catch (NumberFormatException e) {
+            throw new DataParsingException("Invalid number format for field '" + fieldName, e);
+        }
+    }
+
+    private static LocalDate parseDateFallback(String dateStr) throws DataParsingException {
+        try {
+            YearMonth yearMonth = YearMonth.parse(dateStr, DATE_FORMATTER);
+            return yearMonth.atDay(1); // Default to the first day of the month
+        } catch (DateTimeParseException e) {
+            throw new DataParsingException("Invalid date format: " + dateStr + ". Expected format: 'MMMM yyyy'", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads {@link TedTalkRecord}s from a CSV source whose header has already been validated.
+ * A row that cannot be parsed is returned as an empty record that carries the row and the parse error, see
+ * {@link TedTalkRecord#unparseable}.
+ */
+public interface TedTalkReader extends Closeable {
+
+    TedTalkRecord readNextTedTalk() throws IOException, CsvValidationException;
+
+    /**
+     * Skips the given number of records, not lines, so quoted line breaks are accounted for.
+     */
+    void skip(int numberOfRecords) throws IOException;
+
+    /**
+     * Number of records read so far, including the header.
+     */
+    long getRecordsRead();
+
+    /**
+     * Byte offset of the next record, or -1 when the reader does not track byte offsets.
+     */
+    default long getPosition() {
+        return -1;
+    }
+
+    /**
+     * Continues at the record that starts at the given byte offset, as if recordsRead records had been read.
+     */
+    default void seek(long position, long recordsRead) throws IOException {
+        throw new UnsupportedOperationException("Reader does not track byte offsets");
+    }
+
+    default List<TedTalkRecord> readBatch(int batchSize) throws IOException, CsvValidationException {
+        List<TedTalkRecord> batch = new ArrayList<>();
+        TedTalkRecord currentTalk;
+
+        while (batch.size() < batchSize && (currentTalk = readNextTedTalk()) != null) {
+            batch.add(currentTalk);
+        }
+
+        return batch;
+    }
+}
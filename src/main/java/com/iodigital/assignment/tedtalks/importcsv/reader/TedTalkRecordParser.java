@@ -0,0 +1,95 @@
+package com.iodigital.assignment.tedtalks.importcsv.reader;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.DataParsingException;
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Header validation and row to {@link TedTalkRecord} conversion shared by the CSV readers.
+ */
+final class TedTalkRecordParser {
+
+    static final List<String> REQUIRED_HEADERS = List.of("title", "author", "date", "views", "likes", "link");
+
+    private final Map<String, Integer> headerMap;
+
+    TedTalkRecordParser(String[] headers) throws CsvValidationException {
+        if (headers == null) {
+            throw new CsvValidationException("CSV file is empty - no headers found");
+        }
+        this.headerMap = buildHeaderIndexMap(headers);
+        validateRequiredHeaders(headerMap);
+    }
+
+    /**
+     * Column index of a required header.
+     */
+    int indexOf(String header) {
+        return headerMap.get(header);
+    }
+
+    private static Map<String, Integer> buildHeaderIndexMap(String[] headers) {
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            String normalizedHeader = headers[i].trim().toLowerCase();
+            map.put(normalizedHeader, i);
+        }
+        return map;
+    }
+
+    private static void validateRequiredHeaders(Map<String, Integer> headerMap) throws CsvValidationException {
+        List<String> missingHeaders = REQUIRED_HEADERS.stream()
+                .filter(header -> !headerMap.containsKey(header))
+                .sorted().toList();
+
+        if (!missingHeaders.isEmpty()) {
+            throw new CsvValidationException("Missing required headers: " + String.join(", ", missingHeaders));
+        }
+    }
+
+    /**
+     * @param row        field values, only the required columns are read
+     * @param fieldCount number of fields in the row, which may be less than row.length
+     */
+    TedTalkRecord parse(String[] row, int fieldCount) throws DataParsingException {
+        try {
+            return TedTalkRecord.builder()
+                    .title(getRequiredField(row, fieldCount, "title"))
+                    .speaker(getRequiredField(row, fieldCount, "author"))
+                    .date(parseDate(getRequiredField(row, fieldCount, "date")))
+                    .views(parseLong(row, fieldCount, "views"))
+                    .likes(parseLong(row, fieldCount, "likes"))
+                    .link(getRequiredField(row, fieldCount, "link"))
+                    .build();
+        } catch (Exception e) {
+            throw new DataParsingException("Failed to parse row data: " + e.getMessage(), e);
+        }
+    }
+
+    private String getRequiredField(String[] row, int fieldCount, String fieldName) throws IllegalArgumentException {
+        Integer index = headerMap.get(fieldName.toLowerCase());
+        if (index == null || index >= fieldCount) {
+            throw new IllegalArgumentException("Missing value for field: " + fieldName);
+        }
+
+        String value = row[index];
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(fieldName + " cannot be empty");
+        }
+
+        return value.trim();
+    }
+
+    private Long parseLong(String[] row, int fieldCount, String fieldName) throws DataParsingException {
+        return TedTalkFieldDecoder.parseLong(getRequiredField(row, fieldCount, fieldName), fieldName);
+    }
+
+    private LocalDate parseDate(String dateStr) throws DataParsingException {
+        return TedTalkFieldDecoder.parseDate(dateStr);
+    }
+}
@@ -0,0 +1,63 @@
+package com.iodigital.assignment.tedtalks.importcsv.repository;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportError;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The rows rejected by each import, in import_errors. Plain JDBC, so a batch of rejections is one round trip and a
+ * report is read with a cursor instead of being loaded whole.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportErrorRepository {
+
+    private static final int FETCH_SIZE = 1000;
+    // A batch that is imported again after a restart finds its rows already there
+    private static final String INSERT = """
+            INSERT INTO import_errors (import_job_id, line_number, raw_row, reason) VALUES (?, ?, ?, ?)
+            ON CONFLICT (import_job_id, line_number) DO NOTHING
+            """;
+    private static final String SELECT_BY_JOB = """
+            SELECT line_number, raw_row, reason FROM import_errors WHERE import_job_id = ? ORDER BY line_number
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public void saveAll(Long importJobId, List<ImportError> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, errors, errors.size(), (ps, error) -> {
+            ps.setLong(1, importJobId);
+            ps.setLong(2, error.lineNumber());
+            ps.setString(3, error.rawRow());
+            ps.setString(4, error.reason());
+        });
+    }
+
+    /**
+     * Hands the rejected rows of the job to the action in file order, reading them in pages of {@value #FETCH_SIZE}.
+     */
+    public void forEachByImportJobId(Long importJobId, Consumer<ImportError> action) {
+        // PostgreSQL only honours the fetch size inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_BY_JOB);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, importJobId);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(new ImportError(rs.getLong(1), rs.getString(2), rs.getString(3)))));
+    }
+
+    public void deleteByImportJobId(Long importJobId) {
+        jdbcTemplate.update("DELETE FROM import_errors WHERE import_job_id = ?", importJobId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.iodigital.assignment.tedtalks.importcsv.repository;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJobChunk;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ImportJobChunkRepository extends JpaRepository<ImportJobChunk, Long> {
+
+    List<ImportJobChunk> findByImportJobIdOrderByChunkIndex(Long importJobId);
+
+    /**
+     * Adds the outcome of a batch to the chunk's counters and moves its checkpoint past the batch, see
+     * {@link ImportJobRepository#saveCheckpoint}. The job's row is share locked until the batch commits, so a worker
+     * claiming the job waits for it and then finds its checkpoint.
+     *
+     * @return 0 when another worker has claimed the job, the caller then rolls the batch back
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_job_chunks
+            SET processed_count = processed_count + :#{#batch.succeededCount} + :#{#batch.skippedCount}
+                    + :#{#batch.failedCount} + :#{#batch.updatedCount} + :#{#batch.unchangedCount},
+                successful_count = successful_count + :#{#batch.succeededCount},
+                skipped_count = skipped_count + :#{#batch.skippedCount},
+                failed_count = failed_count + :#{#batch.failedCount},
+                updated_count = updated_count + :#{#batch.updatedCount},
+                unchanged_count = unchanged_count + :#{#batch.unchangedCount},
+                last_processed_offset = :#{#batch.position},
+                updated_at = LOCALTIMESTAMP
+            WHERE id = :id
+              AND EXISTS (SELECT 1 FROM import_jobs
+                          WHERE import_jobs.id = import_job_chunks.import_job_id AND locked_by = :workerId
+                          FOR SHARE)
+            """, nativeQuery = true)
+    int saveCheckpoint(Long id, String workerId, ImportBatch batch);
+
+    @Transactional
+    void deleteByImportJobId(Long importJobId);
+}
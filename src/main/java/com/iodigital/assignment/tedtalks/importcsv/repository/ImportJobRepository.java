@@ -1,7 +1,11 @@
 package com.iodigital.assignment.tedtalks.importcsv.repository;
 
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportBatch;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -9,4 +13,121 @@ public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
 
     Optional<ImportJob> findByFileHash(String fileHash);
 
+    /**
+     * Locks the oldest job of the highest priority that is waiting or whose lease has expired. Jobs locked by other
+     * workers are skipped instead of waited for. Must run inside a transaction that then claims the job.
+     */
+    @Query(value = """
+            SELECT id FROM import_jobs
+            WHERE status IN ('PENDING', 'IN_PROGRESS')
+              AND (lease_expires_at IS NULL OR lease_expires_at < LOCALTIMESTAMP)
+            ORDER BY priority DESC, created_at, id
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<Long> lockNextClaimableJobId();
+
+    /**
+     * @return 1 when the job was claimed, 0 when another worker holds an unexpired lease or the job has finished
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET locked_by = :workerId,
+                lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds),
+                heartbeat_at = LOCALTIMESTAMP,
+                stop_requested = NULL
+            WHERE id = :id
+              AND status IN ('PENDING', 'IN_PROGRESS')
+              AND (lease_expires_at IS NULL OR lease_expires_at < LOCALTIMESTAMP)
+            """, nativeQuery = true)
+    int claim(Long id, String workerId, long leaseSeconds);
+
+    /**
+     * @return 0 when the lease was lost to another worker
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET lease_expires_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds),
+                heartbeat_at = LOCALTIMESTAMP
+            WHERE id = :id AND locked_by = :workerId
+            """, nativeQuery = true)
+    int renewLease(Long id, String workerId, long leaseSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET locked_by = NULL, lease_expires_at = NULL
+            WHERE id = :id AND locked_by = :workerId
+            """, nativeQuery = true)
+    int releaseLease(Long id, String workerId);
+
+    /**
+     * Adds the outcome of a batch to the job's counters and moves its checkpoint past the batch. Only those columns are
+     * written and the version is left alone, so the checkpoint commits in the same transaction as the batch's talks.
+     *
+     * @return 0 when another worker has claimed the job, the caller then rolls the batch back
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET processed_count = processed_count + :#{#batch.succeededCount} + :#{#batch.skippedCount}
+                    + :#{#batch.failedCount} + :#{#batch.updatedCount} + :#{#batch.unchangedCount},
+                successful_count = successful_count + :#{#batch.succeededCount},
+                skipped_count = skipped_count + :#{#batch.skippedCount},
+                failed_count = failed_count + :#{#batch.failedCount},
+                updated_count = updated_count + :#{#batch.updatedCount},
+                unchanged_count = unchanged_count + :#{#batch.unchangedCount},
+                last_processed_line = :#{#batch.recordsRead},
+                last_processed_offset = :#{#batch.position},
+                updated_at = LOCALTIMESTAMP
+            WHERE id = :id AND locked_by = :workerId
+            """, nativeQuery = true)
+    int saveCheckpoint(Long id, String workerId, ImportBatch batch);
+
+    /**
+     * Locks the job's row until the end of the transaction, while the worker holds the job. A worker that claims the
+     * job meanwhile waits for the transaction to end.
+     */
+    @Query(value = "SELECT id FROM import_jobs WHERE id = :id AND locked_by = :workerId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockHeld(Long id, String workerId);
+
+    /**
+     * Stops a job that no worker is importing, in the given status.
+     *
+     * @return 1 when the job was stopped, 0 when a worker holds it or it has ended
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            UPDATE import_jobs
+            SET status = :status, version = version + 1, updated_at = LOCALTIMESTAMP
+            WHERE id = :id
+              AND status IN ('PENDING', 'IN_PROGRESS', 'PAUSED')
+              AND (lease_expires_at IS NULL OR lease_expires_at < LOCALTIMESTAMP)
+            """, nativeQuery = true)
+    int stopUnclaimed(Long id, String status);
+
+    /**
+     * Asks the worker importing the job to stop it in the given status. The version is left alone, the worker
+     * still saves its checkpoints.
+     *
+     * @return 0 when the job has ended
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE import_jobs
+            SET stop_requested = :status
+            WHERE id = :id AND status IN ('PENDING', 'IN_PROGRESS')
+            """, nativeQuery = true)
+    int requestStop(Long id, String status);
+
+    @Query(value = "SELECT stop_requested FROM import_jobs WHERE id = :id AND locked_by = :workerId", nativeQuery = true)
+    Optional<String> findStopRequest(Long id, String workerId);
 }
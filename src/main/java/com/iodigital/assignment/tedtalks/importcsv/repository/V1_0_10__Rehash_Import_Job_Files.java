@@ -0,0 +1,66 @@
+package com.iodigital.assignment.tedtalks.importcsv.repository;
+
+import com.iodigital.assignment.tedtalks.common.io.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the SHA-256 of each job's file as its file_hash. Until calculateStreamHash was fixed it fed every read buffer
+ * into the digest a second time, so the jobs created back then were no longer found for their files. Runs once, with
+ * the SQL migrations. A job whose file is gone, or whose file has a newer job of its own, keeps its hash.
+ */
+@Slf4j
+@Component
+public class V1_0_10__Rehash_Import_Job_Files extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException, IOException {
+        Connection connection = context.getConnection();
+        Map<String, Long> jobsByHash = new HashMap<>();
+        Map<Long, String> filePaths = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet jobs = statement.executeQuery("SELECT id, file_hash, file_path FROM import_jobs")) {
+            while (jobs.next()) {
+                jobsByHash.put(jobs.getString("file_hash"), jobs.getLong("id"));
+                filePaths.put(jobs.getLong("id"), jobs.getString("file_path"));
+            }
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE import_jobs SET file_hash = ? WHERE id = ?")) {
+            for (Map.Entry<Long, String> job : filePaths.entrySet()) {
+                Path file = Path.of(job.getValue());
+                if (!Files.isRegularFile(file)) {
+                    log.warn("Keeping the hash of import job {}, its file {} is gone", job.getKey(), file);
+                    continue;
+                }
+                String fileHash;
+                try (InputStream content = Files.newInputStream(file)) {
+                    fileHash = FileUtils.calculateStreamHash(content);
+                }
+                Long hashedJob = jobsByHash.putIfAbsent(fileHash, job.getKey());
+                if (hashedJob == null) {
+                    update.setString(1, fileHash);
+                    update.setLong(2, job.getKey());
+                    update.addBatch();
+                } else if (!hashedJob.equals(job.getKey())) {
+                    log.warn("Keeping the hash of import job {}, import job {} has the same file", job.getKey(), hashedJob);
+                }
+            }
+            update.executeBatch();
+        }
+    }
+}
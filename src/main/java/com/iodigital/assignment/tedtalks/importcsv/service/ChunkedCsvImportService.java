@@ -0,0 +1,217 @@
+package com.iodigital.assignment.tedtalks.importcsv.service;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.common.io.FileUtils;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
+import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJobChunk;
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.AdaptiveBatchSize;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportBatch;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportPipelineMetrics;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgress;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvChunkSplitter;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvReaderFactory;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkReader;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportErrorRepository;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobChunkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static com.iodigital.assignment.tedtalks.common.config.ImportExecutorConfig.IMPORT_CHUNK_EXECUTOR;
+
+/**
+ * Imports a large CSV file as byte-range chunks that are parsed and written in parallel.
+ * <p>
+ * Every chunk is read with the file's header line in front of it and keeps its own checkpoint, so a resumed job
+ * only repeats the unfinished chunks. The job counters are the sum of the chunk counters.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedCsvImportService {
+
+    private final ImportJobChunkRepository importJobChunkRepository;
+    private final ImportErrorRepository importErrorRepository;
+    private final CsvReaderFactory csvReaderFactory;
+    private final CsvProcessingService csvProcessingService;
+    private final CsvImportProperties csvImportProperties;
+    private final ImportProgressRegistry progressRegistry;
+    private final ImportPipelineMetrics pipelineMetrics;
+    private final ImportJobControl importJobControl;
+    private final ImportJobQueue importJobQueue;
+    @Qualifier(IMPORT_CHUNK_EXECUTOR)
+    private final TaskExecutor importChunkExecutor;
+
+    public boolean shouldSplit(ImportJob job) throws IOException {
+        CsvImportProperties.Chunking chunking = csvImportProperties.getChunking();
+        Path file = Path.of(job.getFilePath());
+        // A gzip stream can only be inflated from its start, so compressed files are imported in one piece. A staged
+        // import merges once per file, so it is not split either.
+        return chunking.isEnabled() && csvImportProperties.getWriteMode() != WriteMode.STAGED
+                && Files.size(file) > chunking.getChunkSize().toBytes() && !FileUtils.isGzip(file);
+    }
+
+    public void processImportJob(ImportJob job) throws IOException {
+        Path file = Path.of(job.getFilePath());
+        CsvChunkSplitter.ChunkPlan plan = CsvChunkSplitter.split(file, csvImportProperties.getChunking().getChunkSize().toBytes());
+        List<ImportJobChunk> chunks = findOrCreateChunks(job, plan);
+        ImportProgress progress = progressRegistry.progressOf(job);
+        progress.resumedAt(chunks.stream().mapToLong(ChunkedCsvImportService::bytesRead).sum());
+        // Shared by the chunks, they write to the same database
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(csvImportProperties, pipelineMetrics);
+
+        job.setStatus(Status.IN_PROGRESS);
+        saveJob(job);
+        log.info("Importing {} in {} chunks", job.getFileName(), chunks.size());
+
+        List<CompletableFuture<Void>> futures = chunks.stream()
+                .filter(chunk -> chunk.getStatus() != Status.COMPLETED)
+                .map(chunk -> CompletableFuture.runAsync(() -> processChunk(job, chunk, file, plan.headerLength(), progress, batchSize), importChunkExecutor))
+                .toList();
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ImportLeaseLostException leaseLost) {
+                // The worker that claimed the job sums up the chunks it imported
+                throw leaseLost;
+            }
+            aggregateCounters(job, chunks);
+            saveJob(job);
+            throw new TedTalkImportException("Chunked import failed for " + job.getFileName() + ": " + e.getCause().getMessage(), e.getCause());
+        }
+        aggregateCounters(job, chunks);
+        saveJob(job);
+    }
+
+    private List<ImportJobChunk> findOrCreateChunks(ImportJob job, CsvChunkSplitter.ChunkPlan plan) {
+        List<ImportJobChunk> chunks = importJobChunkRepository.findByImportJobIdOrderByChunkIndex(job.getId());
+        if (!chunks.isEmpty()) {
+            // Chunks planned before their first line was kept take it from the same plan
+            for (ImportJobChunk chunk : chunks) {
+                if (chunk.getRecordsBefore() == null) {
+                    plan.ranges().stream()
+                            .filter(range -> range.start() == chunk.getStartOffset())
+                            .findFirst()
+                            .ifPresent(range -> chunk.setRecordsBefore(range.recordsBefore()));
+                }
+            }
+            return chunks;
+        }
+        List<CsvChunkSplitter.ByteRange> ranges = plan.ranges();
+        return importJobChunkRepository.saveAll(IntStream.range(0, ranges.size())
+                .mapToObj(index -> ImportJobChunk.builder()
+                        .importJobId(job.getId())
+                        .chunkIndex(index)
+                        .startOffset(ranges.get(index).start())
+                        .endOffset(ranges.get(index).end())
+                        .recordsBefore(ranges.get(index).recordsBefore())
+                        .status(Status.PENDING)
+                        .build())
+                .toList());
+    }
+
+    private void processChunk(ImportJob job, ImportJobChunk chunk, Path file, long headerLength, ImportProgress progress,
+                              AdaptiveBatchSize batchSize) {
+        try (TedTalkReader csvReader = csvReaderFactory.createTedTalkReader(file, headerLength, chunk.getStartOffset(), chunk.getEndOffset())) {
+            if (chunk.getLastProcessedOffset() != null && csvReader.getPosition() >= 0) {
+                csvReader.seek(chunk.getLastProcessedOffset(), chunk.getProcessedCount() + 1L);
+            } else {
+                csvReader.skip(chunk.getProcessedCount());
+            }
+            chunk.setStatus(Status.IN_PROGRESS);
+            saveChunk(chunk);
+
+            // The reader numbers records from the header in front of the chunk, rejected rows are reported with
+            // their line in the file
+            long lineOffset = chunk.getRecordsBefore() != null ? chunk.getRecordsBefore() - 1 : 0;
+            long sequence = 0;
+            boolean stopped = false;
+            List<TedTalkRecord> records;
+            while (!(records = csvReader.readBatch(batchSize.next())).isEmpty()) {
+                importJobControl.checkLease(job.getId());
+                // A chunk that has read its whole range completes, whatever was asked in the meantime
+                if (importJobControl.pollStopRequest(job)) {
+                    importJobControl.markStopped(job.getId());
+                    stopped = true;
+                    break;
+                }
+                for (TedTalkRecord talkRecord : records) {
+                    talkRecord.setLineNumber(talkRecord.getLineNumber() + lineOffset);
+                }
+                long previousBytesRead = bytesRead(chunk);
+                ImportBatch batch = new ImportBatch(sequence++, records, (int) csvReader.getRecordsRead(),
+                        csvReader.getPosition() >= 0 ? csvReader.getPosition() : null);
+                long start = System.nanoTime();
+                // The talks, rejected rows and checkpoint of the batch commit together, so a resumed chunk neither
+                // writes a batch twice nor misses one
+                csvProcessingService.processBatch(batch, records, () -> {
+                    importErrorRepository.saveAll(job.getId(), batch.getErrors());
+                    if (importJobChunkRepository.saveCheckpoint(chunk.getId(), importJobQueue.getWorkerId(), batch) == 0) {
+                        throw new ImportLeaseLostException(job.getId());
+                    }
+                });
+                batchSize.written(batch.getSize(), System.nanoTime() - start);
+                batch.applyTo(chunk);
+                chunk.setLastProcessedOffset(batch.getPosition());
+                batch.applyTo(progress);
+                progress.advanceBy(bytesRead(chunk) - previousBytesRead);
+            }
+            if (!stopped) {
+                chunk.setStatus(Status.COMPLETED);
+                saveChunk(chunk);
+            }
+        } catch (ImportLeaseLostException e) {
+            // The chunk's status belongs to the worker that claimed the job
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            chunk.setStatus(Status.FAILED);
+            saveChunk(chunk);
+            log.error("Failed to import chunk {} of {} - cause: {}", chunk.getChunkIndex(), job.getFileName(), e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Bytes of the chunk's range that were imported, up to its last checkpoint.
+     */
+    private static long bytesRead(ImportJobChunk chunk) {
+        if (chunk.getStatus() == Status.COMPLETED) {
+            return chunk.getEndOffset() - chunk.getStartOffset();
+        }
+        return chunk.getLastProcessedOffset() != null ? chunk.getLastProcessedOffset() - chunk.getStartOffset() : 0;
+    }
+
+    private void aggregateCounters(ImportJob job, List<ImportJobChunk> chunks) {
+        job.setProcessedCount(chunks.stream().mapToInt(ImportJobChunk::getProcessedCount).sum());
+        job.setSuccessfulCount(chunks.stream().mapToInt(ImportJobChunk::getSuccessfulCount).sum());
+        job.setSkippedCount(chunks.stream().mapToInt(ImportJobChunk::getSkippedCount).sum());
+        job.setFailedCount(chunks.stream().mapToInt(ImportJobChunk::getFailedCount).sum());
+        job.setUpdatedCount(chunks.stream().mapToInt(ImportJobChunk::getUpdatedCount).sum());
+        job.setUnchangedCount(chunks.stream().mapToInt(ImportJobChunk::getUnchangedCount).sum());
+        job.setLastProcessedLine(job.getProcessedCount() + 1);
+    }
+
+    private void saveChunk(ImportJobChunk chunk) {
+        chunk.setVersion(importJobChunkRepository.save(chunk).getVersion());
+    }
+
+    private void saveJob(ImportJob job) {
+        job.setVersion(importJobQueue.saveHeld(job).getVersion());
+    }
+}
@@ -1,18 +1,30 @@
 package com.iodigital.assignment.tedtalks.importcsv.service;
 
-import com.iodigital.assignment.tedtalks.common.io.FileSystemResourceProvider;
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
 import com.iodigital.assignment.tedtalks.importcsv.event.FileUploadEvent;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
-import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkReader;
 import com.iodigital.assignment.tedtalks.importcsv.reader.CsvReaderFactory;
 import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.iodigital.assignment.tedtalks.common.config.ImportExecutorConfig.IMPORT_TASK_EXECUTOR;
 
 @Slf4j
 @Service
@@ -20,41 +32,142 @@ import java.io.InputStream;
 public class CsvImportService {
 
     private final ImportJobRepository importJobRepository;
-    private final FileSystemResourceProvider fileResourceProvider;
     private final CsvReaderFactory csvReaderFactory;
     private final CsvProcessingService csvProcessingService;
+    private final ChunkedCsvImportService chunkedCsvImportService;
+    private final ImportJobQueue importJobQueue;
+    private final TaskScheduler taskScheduler;
+    private final CsvImportProperties csvImportProperties;
+    private final ImportProgressRegistry progressRegistry;
+    private final ImportJobControl importJobControl;
+    @Qualifier(IMPORT_TASK_EXECUTOR)
+    private final TaskExecutor importTaskExecutor;
 
-    @EventListener
+    /**
+     * Hands the job to the import executor once the transaction that created it has committed,
+     * so the worker always finds the job row and the publisher is not held up by the import.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
     public void handleFileUploadedEvent(FileUploadEvent event) {
-        log.info("Processing newly uploaded file: {}", event.importJob().getFileName());
-        startImportJob(event.importJob());
+        ImportJob job = event.importJob();
+        log.info("Queueing newly uploaded file: {}", job.getFileName());
+        try {
+            importTaskExecutor.execute(() -> startImportJob(job));
+        } catch (TaskRejectedException e) {
+            log.warn("Import queue is full, rejecting import job {}", job.getId());
+            job.setStatus(Status.FAILED);
+            // No worker holds the job yet
+            job.setVersion(importJobRepository.save(job).getVersion());
+            progressRegistry.finish(job);
+        }
     }
 
     public void startImportJob(ImportJob importJob) {
-        startImport(importJob);
+        if (!importJobQueue.claim(importJob)) {
+            log.info("Import job {} is already claimed by another worker", importJob.getId());
+            return;
+        }
+        runClaimedImportJob(importJob);
     }
 
+    /**
+     * Imports a job this worker has claimed, renewing its lease until the import has ended.
+     */
+    public void runClaimedImportJob(ImportJob importJob) {
+        Duration renewInterval = csvImportProperties.getQueue().getLeaseDuration().dividedBy(3);
+        ScheduledFuture<?> heartbeat = taskScheduler.scheduleAtFixedRate(() -> heartbeat(importJob),
+                Instant.now().plus(renewInterval), renewInterval);
+        try {
+            startImport(importJob);
+        } finally {
+            heartbeat.cancel(false);
+            importJobQueue.release(importJob);
+        }
+    }
+
+    // Also passes on pause and cancel requests that were made on other nodes, for a batch that takes long
+    private void heartbeat(ImportJob job) {
+        if (!importJobQueue.renewLease(job)) {
+            importJobControl.leaseLost(job.getId());
+            return;
+        }
+        importJobQueue.findStopRequest(job).ifPresent(status -> importJobControl.requestStop(job.getId(), status));
+    }
 
     private void startImport(ImportJob job) {
-        try (InputStream inputStream = fileResourceProvider.getInputStream(job.getFilePath());
-             TedTalkCSVReader csvReader = csvReaderFactory.createTedTalkReader(inputStream)) {
+        progressRegistry.start(job);
+        try {
+            importFile(job);
+        } finally {
+            importJobControl.takeStopRequest(job.getId());
+            progressRegistry.finish(job);
+        }
+    }
+
+    private void importFile(ImportJob job) {
+        try {
+            if (chunkedCsvImportService.shouldSplit(job)) {
+                chunkedCsvImportService.processImportJob(job);
+                endImportJob(job);
+                return;
+            }
+        } catch (ImportLeaseLostException e) {
+            abandonImportJob(job, e);
+            return;
+        } catch (Exception e) {
+            failImportJob(job, e);
+            return;
+        }
+        try (TedTalkReader csvReader = csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))) {
             csvProcessingService.processImportJob(job, csvReader);
-            completeImportJob(job);
+            endImportJob(job);
 
+        } catch (ImportLeaseLostException e) {
+            abandonImportJob(job, e);
         } catch (Exception e) {
             failImportJob(job, e);
         }
     }
 
+    private void endImportJob(ImportJob job) {
+        Optional<Status> stopRequest = importJobControl.takeStopRequest(job.getId());
+        if (stopRequest.isPresent()) {
+            stopImportJob(job, stopRequest.get());
+        } else {
+            completeImportJob(job);
+        }
+    }
+
+    private void stopImportJob(ImportJob job, Status status) {
+        job.setStatus(status);
+        saveJob(job);
+        log.info("Import job {} {} after line {}", job.getFileName(), status.name().toLowerCase(), job.getLastProcessedLine());
+    }
+
     private void completeImportJob(ImportJob job) {
         job.setStatus(Status.COMPLETED);
-        importJobRepository.save(job);
+        saveJob(job);
         log.info("Import job completed successfully: {}", job.getFileName());
     }
 
     private void failImportJob(ImportJob job, Exception e) {
         job.setStatus(Status.FAILED);
-        importJobRepository.save(job);
+        try {
+            saveJob(job);
+        } catch (ImportLeaseLostException leaseLost) {
+            abandonImportJob(job, leaseLost);
+            return;
+        }
         log.error("Failed to process CSV file {} - cause: {}", job.getFileName(), e.getMessage());
     }
+
+    // The worker that claimed the job resumes it from the last checkpoint this one committed
+    private void abandonImportJob(ImportJob job, ImportLeaseLostException e) {
+        log.warn("Abandoning import job {} - cause: {}", job.getFileName(), e.getMessage());
+    }
+
+    private void saveJob(ImportJob job) {
+        // The job is detached outside the worker's repository calls, keep its @Version in step with the row
+        job.setVersion(importJobQueue.saveHeld(job).getVersion());
+    }
 }
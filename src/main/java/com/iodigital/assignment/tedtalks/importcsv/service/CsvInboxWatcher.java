@@ -0,0 +1,169 @@
+package com.iodigital.assignment.tedtalks.importcsv.service;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.talk.service.ImportJobService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Imports the CSV files that are dropped into the inbox directory.
+ * <p>
+ * A {@link WatchService} reports new and changed files. A file is imported only after its size and modification
+ * time have stayed the same for the stability window, so a file that is still being written is not picked up
+ * half way. Files that were dropped while the application was down are found when the watcher starts.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "tedtalks.csv.import.inbox.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class CsvInboxWatcher {
+
+    private final CsvImportProperties csvImportProperties;
+    private final ImportJobService importJobService;
+
+    private final Map<Path, FileState> pendingFiles = new HashMap<>();
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() throws IOException {
+        if (watcherThread != null) {
+            return;
+        }
+        Path inbox = inboxDir();
+        Files.createDirectories(inbox);
+        watchService = inbox.getFileSystem().newWatchService();
+        inbox.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcherThread = Thread.ofPlatform().name("csv-inbox-watcher").daemon().start(() -> watch(inbox));
+        log.info("Watching inbox {} for CSV files", inbox);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (watcherThread == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the inbox watch service", e);
+        }
+        watcherThread.join(TimeUnit.SECONDS.toMillis(5));
+        watcherThread = null;
+    }
+
+    private void watch(Path inbox) {
+        long pollMillis = csvImportProperties.getInbox().getPollInterval().toMillis();
+        scan(inbox);
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan(inbox);
+                        } else {
+                            addCandidate(inbox.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                importStableFiles();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.info("Stopped watching inbox {}", inbox);
+        }
+    }
+
+    private void scan(Path inbox) {
+        try (Stream<Path> files = Files.list(inbox)) {
+            files.forEach(this::addCandidate);
+        } catch (IOException e) {
+            log.error("Failed to list inbox {} - cause: {}", inbox, e.getMessage());
+        }
+    }
+
+    private void addCandidate(Path file) {
+        String name = file.getFileName().toString();
+        // Dot files are the temporary names most copy tools write to before renaming
+        if (!name.startsWith(".") && (name.endsWith(".csv") || name.endsWith(".csv.gz"))) {
+            pendingFiles.putIfAbsent(file, null);
+        }
+    }
+
+    private void importStableFiles() {
+        long now = System.nanoTime();
+        long stabilityWindow = csvImportProperties.getInbox().getStabilityWindow().toNanos();
+        Iterator<Map.Entry<Path, FileState>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, FileState> entry = iterator.next();
+            Path file = entry.getKey();
+            FileState current;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    iterator.remove();
+                    continue;
+                }
+                current = new FileState(attributes.size(), attributes.lastModifiedTime(), now);
+            } catch (NoSuchFileException e) {
+                iterator.remove();
+                continue;
+            } catch (IOException e) {
+                log.warn("Failed to read attributes of inbox file {} - cause: {}", file, e.getMessage());
+                continue;
+            }
+
+            FileState previous = entry.getValue();
+            if (previous == null || !previous.sameAs(current)) {
+                entry.setValue(current);
+            } else if (now - previous.stableSince() >= stabilityWindow) {
+                iterator.remove();
+                importFile(file);
+            }
+        }
+    }
+
+    private void importFile(Path file) {
+        try {
+            log.info("Importing inbox file: {}", file.getFileName());
+            importJobService.createImportJobForInboxFile(file);
+        } catch (Exception e) {
+            log.error("Failed to import inbox file {}: {}", file.getFileName(), e.getMessage(), e);
+        }
+    }
+
+    private Path inboxDir() {
+        return Paths.get(csvImportProperties.getInbox().getDir()).toAbsolutePath();
+    }
+
+    private record FileState(long size, FileTime lastModified, long stableSince) {
+
+        boolean sameAs(FileState other) {
+            return size == other.size && lastModified.equals(other.lastModified);
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.iodigital.assignment.tedtalks.importcsv.service;
 
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportCounters;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
-import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkReader;
 import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
 import com.opencsv.exceptions.CsvValidationException;
 
@@ -10,8 +11,14 @@ import java.util.List;
 
 public interface CsvProcessingService {
 
-    void processImportJob(ImportJob job, TedTalkCSVReader csvReader) throws CsvValidationException, IOException;
-    void processBatch(ImportJob job, List<TedTalkRecord> batch);
+    void processImportJob(ImportJob job, TedTalkReader csvReader) throws CsvValidationException, IOException;
+    void processBatch(ImportCounters counters, List<TedTalkRecord> batch);
+
+    /**
+     * Like {@link #processBatch(ImportCounters, List)}, with an action that commits in the same transaction as the
+     * batch's talks, such as the checkpoint of the batch.
+     */
+    void processBatch(ImportCounters counters, List<TedTalkRecord> batch, Runnable inSameTransaction);
 
 
 }
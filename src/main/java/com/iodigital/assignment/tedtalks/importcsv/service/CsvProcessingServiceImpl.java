@@ -1,94 +1,375 @@
 package com.iodigital.assignment.tedtalks.importcsv.service;
 
 import com.iodigital.assignment.tedtalks.common.mapper.TedTalkMapper;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportCounters;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportError;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.AdaptiveBatchSize;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportBatch;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportKeyFilter;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportKeyFilterFactory;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportLoadGovernor;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportPipeline;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportPipelineMetrics;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgress;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
+import com.iodigital.assignment.tedtalks.importcsv.writer.BatchWriteResult;
+import com.iodigital.assignment.tedtalks.importcsv.writer.ImportStagingTable;
+import com.iodigital.assignment.tedtalks.importcsv.writer.TedTalkBatchWriterFactory;
 import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkFingerprint;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkKey;
+import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
+import com.iodigital.assignment.tedtalks.talk.repository.projection.StoredFingerprint;
 import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
-import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkReader;
 import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportErrorRepository;
 import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
-import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
+import com.iodigital.assignment.tedtalks.importcsv.validation.TedTalkRecordValidator;
 import com.opencsv.exceptions.CsvValidationException;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CsvProcessingServiceImpl implements CsvProcessingService {
 
+    private static final String WRITE_STAGE = "write";
+
     private final ImportJobRepository importJobRepository;
     private final TedTalkRepository tedTalkRepository;
-    private final Validator validator;
+    private final ImportErrorRepository importErrorRepository;
+    private final TedTalkRecordValidator recordValidator;
     private final CsvImportProperties csvImportProperties;
+    private final TedTalkBatchWriterFactory batchWriterFactory;
+    private final ImportPipelineMetrics pipelineMetrics;
+    private final ImportProgressRegistry progressRegistry;
+    private final ImportLoadGovernor importLoadGovernor;
+    private final ImportStagingTable stagingTable;
+    private final ImportJobControl importJobControl;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportKeyFilterFactory keyFilterFactory;
+    private final ImportJobQueue importJobQueue;
 
     @Override
-    public void processImportJob(ImportJob job, TedTalkCSVReader csvReader) throws CsvValidationException, IOException {
-        resumeFromLastProcessedLine(csvReader, job);
+    public void processImportJob(ImportJob job, TedTalkReader csvReader) throws CsvValidationException, IOException {
+        if (csvImportProperties.getWriteMode() == WriteMode.STAGED) {
+            processStagedImportJob(job, csvReader);
+            return;
+        }
+        resumeFromCheckpoint(csvReader, job);
+        job.setStatus(ImportJob.Status.IN_PROGRESS);
+        saveJob(job);
+        // Only JPA writes and the delta stage look talks up
+        boolean looksUp = csvImportProperties.getWriteMode() == WriteMode.JPA || csvImportProperties.isSkipUnchanged();
+        ImportKeyFilter keyFilter = looksUp ? keyFilterFactory.create(job) : ImportKeyFilter.none();
+        try {
+            runPipeline(job, csvReader, keyFilter, (counters, talks) -> write(counters, talks, keyFilter));
+        } finally {
+            keyFilterFactory.release(job, keyFilter);
+        }
+    }
+
+    /**
+     * Loads the whole file into the job's staging table and merges it into ted_talks at the end, in one transaction
+     * that also stores the job's counters. Talks are counted as successful or skipped only at the merge, the
+     * checkpoints in between record read position, rejected rows and talks dropped before staging. The staging table
+     * does not survive a database crash, so an interrupted staged import starts over from the beginning of the file.
+     */
+    private void processStagedImportJob(ImportJob job, TedTalkReader csvReader) throws CsvValidationException, IOException {
+        if (job.getLastProcessedLine() > 0) {
+            job.resetProgress();
+            progressRegistry.restart(job);
+        }
         job.setStatus(ImportJob.Status.IN_PROGRESS);
-        importJobRepository.save(job);
-        List<TedTalkRecord> batch;
-        while (!(batch = csvReader.readBatch(csvImportProperties.getBatchSize())).isEmpty()) {
-            processBatch(job, batch);
-            job.setLastProcessedLine((int) csvReader.getRecordsRead());
-            importJobRepository.save(job);
+        saveJob(job);
+        stagingTable.create(job.getId());
+        try {
+            runPipeline(job, csvReader, ImportKeyFilter.none(), (counters, talks) -> stage(job, talks));
+            if (importJobControl.isStopped(job.getId())) {
+                // Half a file is never merged, the import starts over when it is resumed
+                return;
+            }
+            // The merged talks were read before the last checkpoint, they are counted without moving it
+            ImportBatch merged = new ImportBatch(0, List.of(), job.getLastProcessedLine(), job.getLastProcessedOffset());
+            stagingTable.merge(job.getId(), result -> {
+                merged.processAndSucceed(result.succeeded());
+                merged.processAndSkipped(result.skipped());
+                saveCheckpoint(job, merged);
+            });
+            checkpointed(job, merged, progressRegistry.progressOf(job));
+        } finally {
+            stagingTable.drop(job.getId());
+        }
+    }
+
+    private void runPipeline(ImportJob job, TedTalkReader csvReader, ImportKeyFilter keyFilter, BatchSink sink)
+            throws CsvValidationException, IOException {
+        CsvImportProperties.Pipeline properties = csvImportProperties.getPipeline();
+        int writeParallelism = csvImportProperties.getWriteMode() == WriteMode.JPA ? 1 : properties.getWriteParallelism();
+        List<ImportPipeline.Stage> stages = new ArrayList<>();
+        stages.add(new ImportPipeline.Stage("validate", properties.getValidateParallelism(),
+                batch -> batch.setTalks(mapAndValidate(batch, batch.getRecords()))));
+        stages.add(new ImportPipeline.Stage("dedupe", properties.getDedupeParallelism(),
+                batch -> batch.setTalks(dedupe(batch, batch.getTalks()))));
+        if (csvImportProperties.isSkipUnchanged()) {
+            stages.add(new ImportPipeline.Stage("delta", properties.getDeltaParallelism(),
+                    batch -> batch.setTalks(dropUnchanged(batch, batch.getTalks(), keyFilter))));
+        }
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(csvImportProperties, pipelineMetrics);
+        if (writeParallelism > 1) {
+            stages.add(new ImportPipeline.Stage(WRITE_STAGE, writeParallelism, batch -> {
+                importLoadGovernor.acquire(batch.getTalks().size());
+                long start = System.nanoTime();
+                sink.write(batch, batch.getTalks());
+                batchSize.written(batch.getSize(), System.nanoTime() - start);
+            }));
         }
+
+        ImportProgress progress = progressRegistry.progressOf(job);
+        AtomicLong sequence = new AtomicLong();
+        new ImportPipeline(stages, properties.getQueueCapacity(), pipelineMetrics).run(() -> {
+            importJobControl.checkLease(job.getId());
+            List<TedTalkRecord> records = csvReader.readBatch(batchSize.next());
+            if (records.isEmpty()) {
+                return null;
+            }
+            // Stops reading on pause or cancel, the batches already read are still written and checkpointed. Asked
+            // once the next batch is read, so an import that has read its whole file completes
+            if (importJobControl.pollStopRequest(job)) {
+                importJobControl.markStopped(job.getId());
+                return null;
+            }
+            return new ImportBatch(sequence.getAndIncrement(), records, (int) csvReader.getRecordsRead(),
+                    csvReader.getPosition() >= 0 ? csvReader.getPosition() : null);
+        }, batch -> {
+            if (writeParallelism == 1) {
+                // Throttled before the transaction opens, a waiting batch holds no pooled connection
+                importLoadGovernor.acquire(batch.getTalks().size());
+            }
+            batch.mark();
+            try {
+                writeAndCheckpoint(job, batch, sink, writeParallelism, batchSize);
+            } catch (DataIntegrityViolationException e) {
+                if (!keyFilter.isEnabled() || writeParallelism > 1) {
+                    throw e;
+                }
+                // A talk another import stored after the filter was seeded skipped its lookup. Once the whole batch
+                // is in the filter every talk of it is looked up, the write rolled back and is done once more
+                log.warn("Batch {} of import job {} ran into a talk stored since its key filter was seeded, "
+                        + "writing it again with every talk looked up", batch.getSequence(), job.getId());
+                batch.reset();
+                batch.getTalks().forEach(talk -> talk.setId(null));
+                keyFilter.putAll(batch.getTalks());
+                writeAndCheckpoint(job, batch, sink, writeParallelism, batchSize);
+            }
+            checkpointed(job, batch, progress);
+        });
+    }
+
+    private void writeAndCheckpoint(ImportJob job, ImportBatch batch, BatchSink sink, int writeParallelism,
+                                    AdaptiveBatchSize batchSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (writeParallelism == 1) {
+                // Written in file order on this thread and committed together with the checkpoint, so a resumed
+                // import neither writes a batch twice nor misses one
+                long start = System.nanoTime();
+                sink.write(batch, batch.getTalks());
+                long nanos = System.nanoTime() - start;
+                pipelineMetrics.batchProcessed(WRITE_STAGE, batch.getSize(), nanos);
+                batchSize.written(batch.getSize(), nanos);
+            }
+            checkpoint(job, batch);
+        });
     }
 
     @Override
-    public void processBatch(ImportJob job, List<TedTalkRecord> batch) {
+    public void processBatch(ImportCounters counters, List<TedTalkRecord> batch) {
+        processBatch(counters, batch, () -> {
+        });
+    }
+
+    @Override
+    public void processBatch(ImportCounters counters, List<TedTalkRecord> batch, Runnable inSameTransaction) {
+        List<TedTalk> prepared = dedupe(counters, mapAndValidate(counters, batch));
+        ImportKeyFilter keyFilter = ImportKeyFilter.none();
+        List<TedTalk> talks = csvImportProperties.isSkipUnchanged()
+                ? dropUnchanged(counters, prepared, keyFilter) : prepared;
+        importLoadGovernor.acquire(talks.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            write(counters, talks, keyFilter);
+            inSameTransaction.run();
+        });
+    }
+
+    private List<TedTalk> mapAndValidate(ImportCounters counters, List<TedTalkRecord> batch) {
+        List<TedTalk> talks = new ArrayList<>(batch.size());
+        LocalDate today = LocalDate.now();
         for (TedTalkRecord talkRecord : batch) {
-            processRecord(job, talkRecord);
+            if (talkRecord.getParseError() != null) {
+                counters.processAndRejected(new ImportError(
+                        talkRecord.getLineNumber(), talkRecord.getRawRow(), talkRecord.getParseError()));
+                continue;
+            }
+            // Validated before mapping, so rejected records are never turned into entities
+            if (!recordValidator.isValid(talkRecord, today)) {
+                counters.processAndRejected(recordValidator.rejectionOf(talkRecord));
+                continue;
+            }
+            talks.add(TedTalkMapper.mapToTedTalk(talkRecord));
         }
+        return talks;
     }
 
+    /**
+     * Drops repeated talks within the batch, so bulk statements never touch the same row twice.
+     */
+    private List<TedTalk> dedupe(ImportCounters counters, List<TedTalk> talks) {
+        Map<TedTalkKey, TedTalk> unique = new LinkedHashMap<>();
+        for (TedTalk talk : talks) {
+            unique.putIfAbsent(TedTalkKey.of(talk), talk);
+        }
+        if (unique.size() == talks.size()) {
+            return talks;
+        }
+        counters.processAndSkipped(talks.size() - unique.size());
+        return new ArrayList<>(unique.values());
+    }
 
-    public void processRecord(ImportJob job, TedTalkRecord talkRecord) {
-        if (talkRecord.isEmpty()) {
-            log.warn("Received Empty TedTalkRecord, skipping processing.");
-            job.processAndFailed();
+    /**
+     * Drops the talks that are stored with the same fingerprint already, so only new and changed rows are written.
+     * The natural key is compared as well, a fingerprint shared by two different talks does not hide either. Talks
+     * the key filter has never seen are new and are not looked up.
+     */
+    private List<TedTalk> dropUnchanged(ImportCounters counters, List<TedTalk> talks, ImportKeyFilter keyFilter) {
+        if (talks.isEmpty()) {
+            return talks;
+        }
+        List<Long> fingerprints = new ArrayList<>(talks.size());
+        for (TedTalk talk : talks) {
+            // Every talk carries its fingerprint to the writer, looked up or not
+            long fingerprint = TedTalkFingerprint.fingerprintOf(talk);
+            if (keyFilter.mightContain(talk)) {
+                fingerprints.add(fingerprint);
+            }
+        }
+        if (fingerprints.isEmpty()) {
+            return talks;
+        }
+        List<StoredFingerprint> stored = tedTalkRepository.findByFingerprintIn(fingerprints);
+        if (stored.isEmpty()) {
+            return talks;
+        }
+        Map<TedTalkKey, Long> storedFingerprints = new HashMap<>(stored.size() * 2);
+        for (StoredFingerprint row : stored) {
+            storedFingerprints.put(new TedTalkKey(row.getTitle(), row.getSpeaker(), row.getDate()), row.getFingerprint());
+        }
+        List<TedTalk> changed = new ArrayList<>(talks.size() - stored.size());
+        for (TedTalk talk : talks) {
+            if (!talk.getFingerprint().equals(storedFingerprints.get(TedTalkKey.of(talk)))) {
+                changed.add(talk);
+            }
+        }
+        counters.processAndUnchanged(talks.size() - changed.size());
+        return changed;
+    }
+
+    private void write(ImportCounters counters, List<TedTalk> talks, ImportKeyFilter keyFilter) {
+        if (talks.isEmpty()) {
             return;
         }
-        TedTalk talk = TedTalkMapper.mapToTedTalk(talkRecord);
 
-        if (!isValid(talk)) {
-            job.processAndFailed();
+        // With the delta stage every talk has been counted there already
+        Predicate<TedTalk> mightBeStored = csvImportProperties.isSkipUnchanged()
+                ? keyFilter::recheck : keyFilter::mightContain;
+        BatchWriteResult result = batchWriterFactory.getWriter(csvImportProperties.getWriteMode())
+                .write(talks, mightBeStored);
+        // Stored now, whether inserted or found, so later batches look them up
+        keyFilter.putAll(talks);
+        counters.processAndSucceed(result.succeeded());
+        counters.processAndSkipped(result.skipped());
+        counters.processAndUpdated(result.updated());
+        counters.processAndUnchanged(result.unchanged());
+    }
+
+    private void stage(ImportJob job, List<TedTalk> talks) {
+        if (talks.isEmpty()) {
             return;
         }
 
-        if (isDuplicate(talk)) {
-            job.processAndSkipped();
-        } else {
-            tedTalkRepository.save(talk);
-            job.processAndSucceed();
+        stagingTable.stage(job.getId(), talks);
+    }
+
+    /**
+     * Stores the batch's rejected rows and moves the job's checkpoint past it, with a narrow UPDATE of the counter
+     * columns that joins the caller's transaction.
+     */
+    private void checkpoint(ImportJob job, ImportBatch batch) {
+        importErrorRepository.saveAll(job.getId(), batch.getErrors());
+        saveCheckpoint(job, batch);
+    }
+
+    /**
+     * Only moves the checkpoint while this worker holds the job. Otherwise the worker that claimed it imports the
+     * same file, and the batch is rolled back instead of being counted twice.
+     */
+    private void saveCheckpoint(ImportJob job, ImportBatch batch) {
+        if (importJobRepository.saveCheckpoint(job.getId(), importJobQueue.getWorkerId(), batch) == 0) {
+            throw new ImportLeaseLostException(job.getId());
         }
     }
 
-    private void resumeFromLastProcessedLine(TedTalkCSVReader reader, ImportJob job) throws IOException {
-        if (job.getLastProcessedLine() > 0) {
-            reader.skip(job.getLastProcessedLine());
+    /**
+     * Mirrors a committed checkpoint on the job and its progress. Left out when the transaction rolls back, so a
+     * failed job is saved with the checkpoint that is in the database.
+     */
+    private void checkpointed(ImportJob job, ImportBatch batch, ImportProgress progress) {
+        batch.applyTo(job);
+        job.setLastProcessedLine(batch.getRecordsRead());
+        job.setLastProcessedOffset(batch.getPosition());
+        batch.applyTo(progress);
+        if (batch.getPosition() != null) {
+            progress.advanceTo(batch.getPosition());
         }
     }
 
-    private boolean isDuplicate(TedTalk talk) {
-        return tedTalkRepository
-                .findByTitleAndSpeakerAndDate(talk.getTitle(), talk.getSpeaker(), talk.getDate())
-                .isPresent();
+    public void processRecord(ImportJob job, TedTalkRecord talkRecord) {
+        processBatch(job, List.of(talkRecord));
+    }
+
+    private void saveJob(ImportJob job) {
+        job.setVersion(importJobQueue.saveHeld(job).getVersion());
+    }
+
+    @FunctionalInterface
+    private interface BatchSink {
+        void write(ImportCounters counters, List<TedTalk> talks);
     }
 
-    private boolean isValid(TedTalk tedTalk) {
-        Set<ConstraintViolation<TedTalk>> violations = validator.validate(tedTalk);
-        if (!violations.isEmpty()) {
-            log.info("Validation failed for tedTalk {} cause {}", tedTalk, violations);
-            return false;
+    private void resumeFromCheckpoint(TedTalkReader reader, ImportJob job) throws IOException {
+        if (job.getLastProcessedOffset() != null && reader.getPosition() >= 0) {
+            // Seek straight to the checkpoint instead of re-reading every record before it
+            reader.seek(job.getLastProcessedOffset(), job.getLastProcessedLine());
+        } else if (job.getLastProcessedLine() > 0) {
+            // The checkpoint counts the header, which the reader has consumed already
+            reader.skip(job.getLastProcessedLine() - 1);
         }
-        return true;
     }
 }
@@ -8,8 +8,10 @@ import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -22,10 +24,20 @@ public class CsvResourceDiscoveryService {
         log.info("Discovering CSV files from classpath folder: {}", csvImportProperties.getPath());
         PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
         try {
-            return Arrays.stream(resolver.getResources(csvImportProperties.getPath() + "/*.csv")).toList();
-        } catch (IOException ex) {
+            return Stream.of("/*.csv", "/*.csv.gz")
+                    .flatMap(pattern -> getResources(resolver, csvImportProperties.getPath() + pattern))
+                    .toList();
+        } catch (UncheckedIOException ex) {
             log.error("Failed to read files from classpath - cause: {}", ex.getMessage(), ex);
             return List.of();
         }
     }
+
+    private static Stream<Resource> getResources(PathMatchingResourcePatternResolver resolver, String locationPattern) {
+        try {
+            return Arrays.stream(resolver.getResources(locationPattern));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package com.iodigital.assignment.tedtalks.importcsv.service;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pause and cancel requests for the imports running on this instance.
+ * <p>
+ * Imports look for a request between batches and stop reading when they find one. The batches already read are still
+ * written and checkpointed, so a paused job resumes where it stopped and a cancelled one keeps what it imported.
+ * Requests made on another node arrive through import_jobs.stop_requested, which is read at every batch boundary and
+ * by the lease heartbeat. An import that has read its whole file by then completes anyway. An import whose lease the
+ * heartbeat could not renew is abandoned at the next batch boundary.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportJobControl {
+
+    private final ImportJobQueue importJobQueue;
+    private final Map<Long, Status> stopRequests = new ConcurrentHashMap<>();
+    private final Set<Long> stopped = ConcurrentHashMap.newKeySet();
+    private final Set<Long> lostLeases = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param status PAUSED or CANCELLED
+     */
+    public void requestStop(Long jobId, Status status) {
+        stopRequests.put(jobId, status);
+    }
+
+    public boolean isStopRequested(Long jobId) {
+        return jobId != null && stopRequests.containsKey(jobId);
+    }
+
+    /**
+     * Like {@link #isStopRequested(Long)}, and also reads a request made on another node, for a batch boundary.
+     */
+    public boolean pollStopRequest(ImportJob job) {
+        if (job.getId() == null || isStopRequested(job.getId())) {
+            return isStopRequested(job.getId());
+        }
+        Optional<Status> status = importJobQueue.findStopRequest(job);
+        status.ifPresent(requested -> requestStop(job.getId(), requested));
+        return status.isPresent();
+    }
+
+    /**
+     * Records that the import stopped reading before the end of its file, on a request.
+     */
+    public void markStopped(Long jobId) {
+        if (jobId != null) {
+            stopped.add(jobId);
+        }
+    }
+
+    public boolean isStopped(Long jobId) {
+        return jobId != null && stopped.contains(jobId);
+    }
+
+    /**
+     * Records that the lease heartbeat found the job claimed by another worker.
+     */
+    public void leaseLost(Long jobId) {
+        lostLeases.add(jobId);
+    }
+
+    /**
+     * Abandons the import at a batch boundary once its lease was lost, the batches after it are not written.
+     *
+     * @throws ImportLeaseLostException when another worker has claimed the job
+     */
+    public void checkLease(Long jobId) {
+        if (jobId != null && lostLeases.contains(jobId)) {
+            throw new ImportLeaseLostException(jobId);
+        }
+    }
+
+    /**
+     * Forgets the request and the lost lease of the job, once its import has ended.
+     *
+     * @return the status the job was asked to stop in, empty when nobody asked or the import read its whole file
+     */
+    public Optional<Status> takeStopRequest(Long jobId) {
+        if (jobId == null) {
+            return Optional.empty();
+        }
+        lostLeases.remove(jobId);
+        Status status = stopRequests.remove(jobId);
+        return stopped.remove(jobId) ? Optional.ofNullable(status) : Optional.empty();
+    }
+}
@@ -0,0 +1,105 @@
+package com.iodigital.assignment.tedtalks.importcsv.service;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Optional;
+
+/**
+ * Uses {@code import_jobs} as a queue shared by all nodes.
+ * <p>
+ * A worker claims a job by taking a lease on it and renews the lease while it imports. When a node stops, the
+ * leases of its jobs run out and the jobs are claimed again by another worker, which resumes them from their
+ * checkpoints.
+ */
+@Slf4j
+@Service
+public class ImportJobQueue {
+
+    private final ImportJobRepository importJobRepository;
+    private final CsvImportProperties csvImportProperties;
+    @Getter
+    private final String workerId;
+
+    public ImportJobQueue(ImportJobRepository importJobRepository, CsvImportProperties csvImportProperties) {
+        this.importJobRepository = importJobRepository;
+        this.csvImportProperties = csvImportProperties;
+        this.workerId = hostName() + ":" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Claims the given job, unless another worker holds an unexpired lease on it or it has finished.
+     */
+    @Transactional
+    public boolean claim(ImportJob job) {
+        return importJobRepository.claim(job.getId(), workerId, leaseSeconds()) == 1;
+    }
+
+    /**
+     * Claims the oldest job that no worker holds, skipping the jobs other workers are claiming at the same time.
+     */
+    @Transactional
+    public Optional<ImportJob> claimNext() {
+        return importJobRepository.lockNextClaimableJobId()
+                .filter(id -> importJobRepository.claim(id, workerId, leaseSeconds()) == 1)
+                .flatMap(importJobRepository::findById);
+    }
+
+    /**
+     * @return false when another worker has claimed the job since its lease ran out
+     */
+    @Transactional
+    public boolean renewLease(ImportJob job) {
+        if (importJobRepository.renewLease(job.getId(), workerId, leaseSeconds()) == 0) {
+            log.warn("Lost the lease on import job {} to another worker", job.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Saves a job this worker holds. Its row stays locked until the save commits, so a worker that claims the job
+     * after the lease ran out never has its status or counters overwritten.
+     *
+     * @throws ImportLeaseLostException when another worker has claimed the job
+     */
+    @Transactional
+    public ImportJob saveHeld(ImportJob job) {
+        if (importJobRepository.lockHeld(job.getId(), workerId).isEmpty()) {
+            throw new ImportLeaseLostException(job.getId());
+        }
+        return importJobRepository.save(job);
+    }
+
+    /**
+     * @return the status the job was asked to stop in on any node, while this worker holds it
+     */
+    public Optional<ImportJob.Status> findStopRequest(ImportJob job) {
+        return importJobRepository.findStopRequest(job.getId(), workerId).map(ImportJob.Status::valueOf);
+    }
+
+    @Transactional
+    public void release(ImportJob job) {
+        importJobRepository.releaseLease(job.getId(), workerId);
+    }
+
+    private long leaseSeconds() {
+        return csvImportProperties.getQueue().getLeaseDuration().toSeconds();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.iodigital.assignment.tedtalks.importcsv.service;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+import static com.iodigital.assignment.tedtalks.common.config.ImportExecutorConfig.IMPORT_TASK_EXECUTOR;
+
+/**
+ * Claims jobs from the shared queue while this node has idle import workers.
+ * <p>
+ * Uploads are started right away on the node that received them. The worker picks up everything else: jobs whose
+ * node was too busy or stopped, and jobs uploaded to nodes that have no idle workers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tedtalks.csv.import.queue.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ImportJobQueueWorker {
+
+    private final ImportJobQueue importJobQueue;
+    private final CsvImportService csvImportService;
+    private final CsvImportProperties csvImportProperties;
+    @Qualifier(IMPORT_TASK_EXECUTOR)
+    private final ThreadPoolTaskExecutor importTaskExecutor;
+
+    @Scheduled(initialDelayString = "${tedtalks.csv.import.queue.pollInterval:5s}",
+            fixedDelayString = "${tedtalks.csv.import.queue.pollInterval:5s}")
+    public void pollQueue() {
+        while (hasIdleWorker()) {
+            Optional<ImportJob> job = importJobQueue.claimNext();
+            if (job.isEmpty()) {
+                return;
+            }
+            log.info("Claimed import job {} for {}", job.get().getId(), job.get().getFileName());
+            try {
+                importTaskExecutor.execute(() -> csvImportService.runClaimedImportJob(job.get()));
+            } catch (TaskRejectedException e) {
+                importJobQueue.release(job.get());
+                return;
+            }
+        }
+    }
+
+    private boolean hasIdleWorker() {
+        return importTaskExecutor.getActiveCount() + importTaskExecutor.getQueueSize()
+                < csvImportProperties.getExecutor().getMaxWorkers();
+    }
+}
@@ -0,0 +1,82 @@
+package com.iodigital.assignment.tedtalks.importcsv.validation;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportError;
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvRows;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks import records against the constraints declared on {@link TedTalkRecord}.
+ * <p>
+ * The constraints are written out as plain comparisons, so a valid record is accepted without reflection and without
+ * allocating {@link ConstraintViolation}s. Bean Validation only runs for records that fail, to tell what is wrong with
+ * them. A constraint added to the record has to be added to {@link #isValid} as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class TedTalkRecordValidator {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+
+    private final Validator validator;
+
+    /**
+     * @param today the date a record may not be after, taken once per batch rather than once per record
+     */
+    public boolean isValid(TedTalkRecord talkRecord, LocalDate today) {
+        return isNotBlank(talkRecord.getTitle())
+                && isNotBlank(talkRecord.getSpeaker())
+                && talkRecord.getDate() != null && !talkRecord.getDate().isAfter(today)
+                && talkRecord.getViews() >= 0
+                && talkRecord.getLikes() >= 0
+                && isNotBlank(talkRecord.getLink());
+    }
+
+    /**
+     * Runs full Bean Validation, for describing a record {@link #isValid} rejected.
+     */
+    public Set<ConstraintViolation<TedTalkRecord>> violationsOf(TedTalkRecord talkRecord) {
+        return validator.validate(talkRecord);
+    }
+
+    /**
+     * Describes a record {@link #isValid} rejected, with the row rebuilt from its values in the columns of the file.
+     */
+    public ImportError rejectionOf(TedTalkRecord talkRecord) {
+        String reason = violationsOf(talkRecord).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+        String rawRow = CsvRows.format(
+                talkRecord.getTitle(),
+                talkRecord.getSpeaker(),
+                talkRecord.getDate() != null ? DATE_FORMATTER.format(talkRecord.getDate()) : null,
+                Long.toString(talkRecord.getViews()),
+                Long.toString(talkRecord.getLikes()),
+                talkRecord.getLink());
+        // Bean Validation reads the clock again, a record can pass it right after midnight
+        return new ImportError(talkRecord.getLineNumber(), rawRow, reason.isEmpty() ? "Validation failed" : reason);
+    }
+
+    // Same rule as Hibernate Validator's @NotBlank, which trims characters up to ' ', without the copy trim() makes
+    private static boolean isNotBlank(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+/**
+ * Outcome of writing a batch of already validated talks.
+ *
+ * @param succeeded number of talks that were inserted
+ * @param skipped   number of talks that were skipped because they already exist
+ * @param updated   number of existing talks whose views or likes were updated, upserts only
+ * @param unchanged number of existing talks that already had the same views and likes, upserts only
+ */
+public record BatchWriteResult(int succeeded, int skipped, int updated, int unchanged) {
+
+    public BatchWriteResult(int succeeded, int skipped) {
+        this(succeeded, skipped, 0, 0);
+    }
+
+    public static BatchWriteResult empty() {
+        return new BatchWriteResult(0, 0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkFingerprint;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streams a batch into a session-local staging table with COPY and merges it into ted_talks
+ * with a single INSERT ... SELECT, so duplicates are still resolved by the unique_ted_talk constraint.
+ */
+@Component
+@RequiredArgsConstructor
+public class CopyTedTalkBatchWriter implements TedTalkBatchWriter {
+
+    private static final String CREATE_COPY_TABLE = """
+            CREATE TEMPORARY TABLE IF NOT EXISTS ted_talks_copy (
+                title VARCHAR(500),
+                speaker VARCHAR(255),
+                date DATE,
+                views BIGINT,
+                likes BIGINT,
+                link VARCHAR(500),
+                fingerprint BIGINT
+            ) ON COMMIT DELETE ROWS
+            """;
+    private static final String COPY_INTO_COPY_TABLE =
+            "COPY ted_talks_copy (title, speaker, date, views, likes, link, fingerprint) FROM STDIN WITH (FORMAT csv)";
+    private static final String MERGE_COPY_TABLE = """
+            INSERT INTO ted_talks (title, speaker, date, views, likes, link, fingerprint)
+            SELECT title, speaker, date, views, likes, link, fingerprint FROM ted_talks_copy
+            ON CONFLICT ON CONSTRAINT unique_ted_talk DO NOTHING
+            """;
+    private static final String CLEAR_COPY_TABLE = "TRUNCATE ted_talks_copy";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public WriteMode getWriteMode() {
+        return WriteMode.COPY;
+    }
+
+    @Override
+    public BatchWriteResult write(List<TedTalk> talks) {
+        if (talks.isEmpty()) {
+            return BatchWriteResult.empty();
+        }
+        String csv = toCsv(talks);
+        Integer inserted = transactionTemplate.execute(status ->
+                jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(CREATE_COPY_TABLE);
+                        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                        copyManager.copyIn(COPY_INTO_COPY_TABLE, new StringReader(csv));
+                        int count = statement.executeUpdate(MERGE_COPY_TABLE);
+                        // The table outlives the batch when the caller's transaction spans several batches
+                        statement.execute(CLEAR_COPY_TABLE);
+                        return count;
+                    } catch (IOException e) {
+                        throw new TedTalkImportException("Failed to stream batch through COPY", e);
+                    }
+                }));
+        int succeeded = Objects.requireNonNullElse(inserted, 0);
+        return new BatchWriteResult(succeeded, talks.size() - succeeded);
+    }
+
+    static String toCsv(List<TedTalk> talks) {
+        StringBuilder csv = new StringBuilder(talks.size() * 128);
+        for (TedTalk talk : talks) {
+            appendField(csv, talk.getTitle()).append(',');
+            appendField(csv, talk.getSpeaker()).append(',');
+            appendField(csv, talk.getDate()).append(',');
+            appendField(csv, talk.getViews()).append(',');
+            appendField(csv, talk.getLikes()).append(',');
+            appendField(csv, talk.getLink()).append(',');
+            appendField(csv, TedTalkFingerprint.fingerprintOf(talk)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder appendField(StringBuilder csv, Object value) {
+        // An unquoted empty field is NULL in COPY's csv format, a quoted one is an empty string
+        if (value == null) {
+            return csv;
+        }
+        return csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+    }
+}
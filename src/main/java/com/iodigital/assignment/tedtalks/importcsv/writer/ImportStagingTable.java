@@ -0,0 +1,110 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The UNLOGGED table a {@code STAGED} import loads its rows into before they are merged into ted_talks.
+ * <p>
+ * The table has no constraints and no indexes, so batches are appended with COPY without any lookups. Once the whole
+ * file is staged, a single statement drops repeated talks within the file, keeping the first, and inserts the rest
+ * into ted_talks, where the unique_ted_talk constraint skips the talks that exist already. An UNLOGGED table is emptied
+ * when PostgreSQL recovers from a crash, so it can never be resumed from, only loaded again.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportStagingTable {
+
+    private static final String CREATE = """
+            CREATE UNLOGGED TABLE %s (
+                row_order BIGINT GENERATED ALWAYS AS IDENTITY,
+                title VARCHAR(500),
+                speaker VARCHAR(255),
+                date DATE,
+                views BIGINT,
+                likes BIGINT,
+                link VARCHAR(500),
+                fingerprint BIGINT
+            )
+            """;
+    private static final String COPY =
+            "COPY %s (title, speaker, date, views, likes, link, fingerprint) FROM STDIN WITH (FORMAT csv)";
+    private static final String MERGE = """
+            WITH file_talks AS (
+                SELECT DISTINCT ON (title, speaker, date) title, speaker, date, views, likes, link, fingerprint
+                FROM %1$s
+                ORDER BY title, speaker, date, row_order
+            ), inserted AS (
+                INSERT INTO ted_talks (title, speaker, date, views, likes, link, fingerprint)
+                SELECT title, speaker, date, views, likes, link, fingerprint FROM file_talks
+                ON CONFLICT ON CONSTRAINT unique_ted_talk DO NOTHING
+                RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM %1$s) AS staged, (SELECT count(*) FROM inserted) AS inserted
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Creates an empty staging table for the job, replacing the one a previous attempt left behind.
+     */
+    public void create(Long importJobId) {
+        drop(importJobId);
+        jdbcTemplate.execute(CREATE.formatted(tableName(importJobId)));
+    }
+
+    public void stage(Long importJobId, List<TedTalk> talks) {
+        if (talks.isEmpty()) {
+            return;
+        }
+        String csv = CopyTedTalkBatchWriter.toCsv(talks);
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(COPY.formatted(tableName(importJobId)), new StringReader(csv));
+            } catch (IOException e) {
+                throw new TedTalkImportException("Failed to stage batch through COPY", e);
+            }
+        });
+    }
+
+    /**
+     * Merges the staged talks into ted_talks and hands the result to the action, which runs in the same transaction
+     * so the job's counters commit together with its talks.
+     *
+     * @return the number of inserted talks, and of staged talks that were repeated in the file or exist already
+     */
+    public BatchWriteResult merge(Long importJobId, Consumer<BatchWriteResult> inSameTransaction) {
+        return Objects.requireNonNull(transactionTemplate.execute(status -> {
+            BatchWriteResult result = jdbcTemplate.queryForObject(MERGE.formatted(tableName(importJobId)), (rs, row) -> {
+                int staged = rs.getInt("staged");
+                int inserted = rs.getInt("inserted");
+                return new BatchWriteResult(inserted, staged - inserted);
+            });
+            inSameTransaction.accept(result);
+            return result;
+        }));
+    }
+
+    public void drop(Long importJobId) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName(importJobId));
+    }
+
+    // The id is a number, it cannot smuggle anything into the statements it is formatted into
+    private static String tableName(Long importJobId) {
+        return "import_staging_" + Objects.requireNonNull(importJobId);
+    }
+}
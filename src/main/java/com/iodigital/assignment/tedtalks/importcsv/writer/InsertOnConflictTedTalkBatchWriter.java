@@ -0,0 +1,91 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkFingerprint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes a batch as a single multi-row INSERT and lets the unique_ted_talk constraint decide which rows
+ * are duplicates. Only inserted rows are returned, so the skipped count is whatever did not come back.
+ */
+@Component
+@RequiredArgsConstructor
+public class InsertOnConflictTedTalkBatchWriter implements TedTalkBatchWriter {
+
+    private static final int COLUMN_COUNT = 7;
+    // PostgreSQL's wire protocol caps a statement at 65535 bind parameters
+    static final int MAX_ROWS_PER_STATEMENT = 65535 / COLUMN_COUNT;
+    private static final String INSERT_PREFIX = "INSERT INTO ted_talks (title, speaker, date, views, likes, link, fingerprint) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = " ON CONFLICT ON CONSTRAINT unique_ted_talk DO NOTHING RETURNING id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public WriteMode getWriteMode() {
+        return WriteMode.INSERT_ON_CONFLICT;
+    }
+
+    @Override
+    public BatchWriteResult write(List<TedTalk> talks) {
+        int succeeded = 0;
+        for (int from = 0; from < talks.size(); from += MAX_ROWS_PER_STATEMENT) {
+            succeeded += insert(talks.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, talks.size())));
+        }
+        return new BatchWriteResult(succeeded, talks.size() - succeeded);
+    }
+
+    private int insert(List<TedTalk> talks) {
+        Integer inserted = jdbcTemplate.query(buildInsertSql(talks.size(), INSERT_SUFFIX), ps -> bind(ps, talks), countRows());
+        return Objects.requireNonNullElse(inserted, 0);
+    }
+
+    /**
+     * @return a multi-row INSERT into ted_talks with the given conflict clause appended
+     */
+    static String buildInsertSql(int rowCount, String suffix) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rowCount * (ROW_PLACEHOLDER.length() + 2)
+                + suffix.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.append(suffix).toString();
+    }
+
+    static void bind(PreparedStatement ps, List<TedTalk> talks) throws SQLException {
+        int index = 1;
+        for (TedTalk talk : talks) {
+            ps.setString(index++, talk.getTitle());
+            ps.setString(index++, talk.getSpeaker());
+            ps.setObject(index++, talk.getDate(), Types.DATE);
+            ps.setObject(index++, talk.getViews(), Types.BIGINT);
+            ps.setObject(index++, talk.getLikes(), Types.BIGINT);
+            ps.setString(index++, talk.getLink());
+            ps.setLong(index++, TedTalkFingerprint.fingerprintOf(talk));
+        }
+    }
+
+    private static ResultSetExtractor<Integer> countRows() {
+        return rs -> {
+            int count = 0;
+            while (rs.next()) {
+                count++;
+            }
+            return count;
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkKey;
+import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+@Component
+@RequiredArgsConstructor
+public class JpaTedTalkBatchWriter implements TedTalkBatchWriter {
+
+    private final TedTalkRepository tedTalkRepository;
+
+    @Override
+    public WriteMode getWriteMode() {
+        return WriteMode.JPA;
+    }
+
+    /**
+     * All duplicate lookups run before anything is persisted: a query against ted_talks would otherwise
+     * auto-flush the pending inserts one by one and defeat JDBC batching.
+     */
+    @Override
+    @Transactional
+    public BatchWriteResult write(List<TedTalk> talks) {
+        return write(talks, talk -> true);
+    }
+
+    @Override
+    @Transactional
+    public BatchWriteResult write(List<TedTalk> talks, Predicate<TedTalk> mightBeStored) {
+        Set<TedTalkKey> batchKeys = new HashSet<>();
+        List<TedTalk> newTalks = new ArrayList<>(talks.size());
+        for (TedTalk talk : talks) {
+            if (batchKeys.add(TedTalkKey.of(talk)) && !(mightBeStored.test(talk) && isDuplicate(talk))) {
+                newTalks.add(talk);
+            }
+        }
+        if (!newTalks.isEmpty()) {
+            tedTalkRepository.saveAll(newTalks);
+        }
+        return new BatchWriteResult(newTalks.size(), talks.size() - newTalks.size());
+    }
+
+    private boolean isDuplicate(TedTalk talk) {
+        return tedTalkRepository
+                .findByTitleAndSpeakerAndDate(talk.getTitle(), talk.getSpeaker(), talk.getDate())
+                .isPresent();
+    }
+}
@@ -0,0 +1,31 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+public interface TedTalkBatchWriter {
+
+    /**
+     * @return the write mode this writer implements
+     */
+    WriteMode getWriteMode();
+
+    /**
+     * Persist a batch of validated talks, skipping the ones that violate the unique_ted_talk constraint.
+     *
+     * @param talks the talks to persist
+     * @return the number of inserted and skipped talks
+     */
+    BatchWriteResult write(List<TedTalk> talks);
+
+    /**
+     * Like {@link #write(List)}, for writers that look talks up before inserting them: talks the predicate rejects
+     * are certainly not stored and are inserted without a lookup.
+     */
+    default BatchWriteResult write(List<TedTalk> talks, Predicate<TedTalk> mightBeStored) {
+        return write(talks);
+    }
+}
@@ -0,0 +1,27 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class TedTalkBatchWriterFactory {
+
+    private final Map<WriteMode, TedTalkBatchWriter> writers = new EnumMap<>(WriteMode.class);
+
+    public TedTalkBatchWriterFactory(List<TedTalkBatchWriter> batchWriters) {
+        batchWriters.forEach(writer -> writers.put(writer.getWriteMode(), writer));
+    }
+
+    public TedTalkBatchWriter getWriter(WriteMode writeMode) {
+        TedTalkBatchWriter writer = writers.get(writeMode);
+        if (writer == null) {
+            throw new TedTalkImportException("No batch writer registered for write mode: " + writeMode);
+        }
+        return writer;
+    }
+}
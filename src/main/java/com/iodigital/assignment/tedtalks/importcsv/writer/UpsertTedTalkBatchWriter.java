@@ -0,0 +1,67 @@
+package com.iodigital.assignment.tedtalks.importcsv.writer;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes a batch as a single multi-row INSERT that updates views, likes and link of the talks that already exist.
+ * <p>
+ * The conflict update only touches rows whose fingerprint differs, so a refresh of an unchanged catalogue writes no
+ * tuples. Rows stored before fingerprints existed are updated once to get theirs.
+ * Inserted and updated rows are returned and told apart by xmax, which is 0 only for a freshly inserted row. Rows that
+ * do not come back were already current.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpsertTedTalkBatchWriter implements TedTalkBatchWriter {
+
+    private static final String UPSERT_SUFFIX = """
+             ON CONFLICT ON CONSTRAINT unique_ted_talk DO UPDATE
+            SET views = EXCLUDED.views, likes = EXCLUDED.likes, link = EXCLUDED.link, fingerprint = EXCLUDED.fingerprint
+            WHERE ted_talks.fingerprint IS DISTINCT FROM EXCLUDED.fingerprint
+            RETURNING (xmax = 0) AS inserted""";
+
+    // Concurrent writers lock existing rows in the same order and cannot deadlock on each other
+    private static final Comparator<TedTalk> KEY_ORDER = Comparator.comparing(TedTalk::getTitle)
+            .thenComparing(TedTalk::getSpeaker)
+            .thenComparing(TedTalk::getDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public WriteMode getWriteMode() {
+        return WriteMode.UPSERT;
+    }
+
+    @Override
+    public BatchWriteResult write(List<TedTalk> talks) {
+        List<TedTalk> sorted = talks.stream().sorted(KEY_ORDER).toList();
+        int inserted = 0;
+        int updated = 0;
+        for (int from = 0; from < sorted.size(); from += InsertOnConflictTedTalkBatchWriter.MAX_ROWS_PER_STATEMENT) {
+            List<TedTalk> rows = sorted.subList(from, Math.min(from + InsertOnConflictTedTalkBatchWriter.MAX_ROWS_PER_STATEMENT, sorted.size()));
+            int[] written = jdbcTemplate.query(InsertOnConflictTedTalkBatchWriter.buildInsertSql(rows.size(), UPSERT_SUFFIX),
+                    ps -> InsertOnConflictTedTalkBatchWriter.bind(ps, rows), countInsertedAndUpdated());
+            inserted += written[0];
+            updated += written[1];
+        }
+        return new BatchWriteResult(inserted, 0, updated, talks.size() - inserted - updated);
+    }
+
+    private static ResultSetExtractor<int[]> countInsertedAndUpdated() {
+        return rs -> {
+            int[] counts = new int[2];
+            while (rs.next()) {
+                counts[rs.getBoolean(1) ? 0 : 1]++;
+            }
+            return counts;
+        };
+    }
+}
@@ -1,16 +1,34 @@
 package com.iodigital.assignment.tedtalks.startup;
 
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.service.CsvImportService;
 import com.iodigital.assignment.tedtalks.importcsv.service.CsvResourceDiscoveryService;
 import com.iodigital.assignment.tedtalks.talk.service.ImportJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
+import static com.iodigital.assignment.tedtalks.common.config.ImportExecutorConfig.IMPORT_STARTUP_EXECUTOR;
+
+
+/**
+ * Imports the files found under {@code tedtalks.csv.import.path} once the application is ready.
+ * <p>
+ * The files are hashed and imported on the startup executor, largest first, so the event thread returns at once
+ * and the API is ready to serve while they are imported. {@link StartupImportHealthIndicator} reports when they are
+ * done.
+ */
 @Slf4j
 @Component
 @ConditionalOnProperty(name = "tedtalks.csv.import.enabled", havingValue = "true")
@@ -19,20 +37,43 @@ public class CsvImportOrchestrator {
 
     private final CsvResourceDiscoveryService resourceDiscoveryService;
     private final ImportJobService importJobService;
+    private final CsvImportService csvImportService;
+    private final StartupImportHealthIndicator startupImportHealthIndicator;
+    @Qualifier(IMPORT_STARTUP_EXECUTOR)
+    private final TaskExecutor importStartupExecutor;
 
     @EventListener(ApplicationReadyEvent.class)
     public void importFilesOnStartup() {
-        resourceDiscoveryService.discoverResources()
-            .forEach(this::processResource);
+        List<Resource> resources = resourceDiscoveryService.discoverResources().stream()
+                .sorted(Comparator.comparingLong(CsvImportOrchestrator::sizeOf).reversed())
+                .toList();
+        startupImportHealthIndicator.started(resources.size());
+        resources.forEach(resource -> importStartupExecutor.execute(() -> processResource(resource)));
     }
 
     private void processResource(Resource resource) {
+        boolean successful = false;
         try {
             log.info("Importing CSV file: {}", resource.getFilename());
-            importJobService.createImportJobForClassPathResource(resource);
-            log.info("Successfully created A job: {}", resource.getFilename());
+            Optional<ImportJob> job = importJobService.createImportJobForClassPathResource(resource);
+            if (job.isPresent()) {
+                csvImportService.startImportJob(job.get());
+                successful = job.get().getStatus() == ImportJob.Status.COMPLETED;
+            } else {
+                successful = true;
+            }
         } catch (Exception e) {
             log.error("Failed to import {}: {}", resource.getFilename(), e.getMessage(), e);
+        } finally {
+            startupImportHealthIndicator.fileImported(successful);
+        }
+    }
+
+    private static long sizeOf(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return 0;
         }
     }
 }
@@ -0,0 +1,53 @@
+package com.iodigital.assignment.tedtalks.startup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of the files imported on startup, reported as the {@code startupImport} health component.
+ * <p>
+ * It is always UP: the API serves requests while the files are imported, so the readiness probe does not wait for
+ * them. The {@code finished} detail tells when every file has been imported or has failed.
+ */
+@Component
+@ConditionalOnProperty(name = "tedtalks.csv.import.enabled", havingValue = "true")
+public class StartupImportHealthIndicator implements HealthIndicator {
+
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger remaining = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile boolean finished;
+
+    void started(int fileCount) {
+        files.set(fileCount);
+        remaining.set(fileCount);
+        finished = fileCount == 0;
+    }
+
+    void fileImported(boolean successful) {
+        if (!successful) {
+            failed.incrementAndGet();
+        }
+        if (remaining.decrementAndGet() == 0) {
+            finished = true;
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("finished", finished)
+                .withDetail("files", files.get())
+                .withDetail("remaining", remaining.get())
+                .withDetail("failed", failed.get())
+                .build();
+    }
+}
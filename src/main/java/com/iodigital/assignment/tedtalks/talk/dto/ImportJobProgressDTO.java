@@ -0,0 +1,27 @@
+package com.iodigital.assignment.tedtalks.talk.dto;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobProgressDTO {
+    private Long jobId;
+    private String fileName;
+    private ImportJob.Status status;
+    private int processedCount;
+    private int successfulCount;
+    private int skippedCount;
+    private int failedCount;
+    private int updatedCount;
+    private int unchangedCount;
+    /** Records processed per second since the import started on this instance, null when it is not running here. */
+    private Double rowsPerSecond;
+    /** Estimated seconds until the file is read, null when it cannot be estimated. */
+    private Long etaSeconds;
+}
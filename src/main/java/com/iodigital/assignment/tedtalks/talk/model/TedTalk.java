@@ -5,11 +5,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.PastOrPresent;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
@@ -22,8 +26,10 @@ import java.time.LocalDate;
 @Table(name = "ted_talks")
 public class TedTalk {
 
+    // allocationSize matches hibernate.jdbc.batch_size so inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ted_talks_seq")
+    @SequenceGenerator(name = "ted_talks_seq", sequenceName = "ted_talks_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -44,4 +50,14 @@ public class TedTalk {
 
     @Column(length = 500)
     private String link;
+
+    /** See {@link TedTalkFingerprint}, kept in step with the other fields on every write. */
+    @EqualsAndHashCode.Exclude
+    private Long fingerprint;
+
+    @PrePersist
+    @PreUpdate
+    void updateFingerprint() {
+        this.fingerprint = TedTalkFingerprint.of(this);
+    }
 }
@@ -0,0 +1,50 @@
+package com.iodigital.assignment.tedtalks.talk.model;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit content hash of the fields a talk is imported with.
+ * <p>
+ * Text fields are stripped of surrounding whitespace, and a missing value hashes differently from an empty one. Two
+ * talks with the same fingerprint and natural key are treated as the same row, so a re-import can skip it.
+ */
+public final class TedTalkFingerprint {
+
+    private static final char SEPARATOR = '\u001f';
+    private static final char NULL = '\u0000';
+
+    private TedTalkFingerprint() {
+    }
+
+    public static long of(TedTalk talk) {
+        StringBuilder fields = new StringBuilder(160);
+        append(fields, talk.getTitle() != null ? talk.getTitle().strip() : null);
+        append(fields, talk.getSpeaker() != null ? talk.getSpeaker().strip() : null);
+        append(fields, talk.getDate());
+        append(fields, talk.getViews());
+        append(fields, talk.getLikes());
+        append(fields, talk.getLink() != null ? talk.getLink().strip() : null);
+        return MurmurHash3.hash128x64(fields.toString().getBytes(StandardCharsets.UTF_8))[0];
+    }
+
+    /**
+     * @return the fingerprint the talk carries, computed and set on it first when it has none
+     */
+    public static long fingerprintOf(TedTalk talk) {
+        if (talk.getFingerprint() == null) {
+            talk.setFingerprint(of(talk));
+        }
+        return talk.getFingerprint();
+    }
+
+    private static void append(StringBuilder fields, Object value) {
+        if (value == null) {
+            fields.append(NULL);
+        } else {
+            fields.append(value);
+        }
+        fields.append(SEPARATOR);
+    }
+}
@@ -0,0 +1,13 @@
+package com.iodigital.assignment.tedtalks.talk.model;
+
+import java.time.LocalDate;
+
+/**
+ * Natural key of a talk, matching the unique_ted_talk constraint.
+ */
+public record TedTalkKey(String title, String speaker, LocalDate date) {
+
+    public static TedTalkKey of(TedTalk talk) {
+        return new TedTalkKey(talk.getTitle(), talk.getSpeaker(), talk.getDate());
+    }
+}
@@ -3,12 +3,14 @@ package com.iodigital.assignment.tedtalks.talk.repository;
 import com.iodigital.assignment.tedtalks.talk.repository.projection.YearlyTopTalk;
 import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
 import com.iodigital.assignment.tedtalks.talk.repository.projection.InfluenceScore;
+import com.iodigital.assignment.tedtalks.talk.repository.projection.StoredFingerprint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -18,6 +20,11 @@ public interface TedTalkRepository extends JpaRepository<TedTalk, Long> {
 
     Optional<TedTalk> findByTitle(String title);
 
+    /**
+     * Natural keys of the stored talks that carry one of the given fingerprints, read from the fingerprint index
+     */
+    List<StoredFingerprint> findByFingerprintIn(Collection<Long> fingerprints);
+
     /**
      * Find top N influential speakers based on a weighted score of views and likes
      *
@@ -0,0 +1,11 @@
+package com.iodigital.assignment.tedtalks.talk.repository.projection;
+
+import java.time.LocalDate;
+
+public interface StoredFingerprint {
+
+    String getTitle();
+    String getSpeaker();
+    LocalDate getDate();
+    Long getFingerprint();
+}
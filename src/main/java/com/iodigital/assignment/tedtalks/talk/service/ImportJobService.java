@@ -1,11 +1,73 @@
 package com.iodigital.assignment.tedtalks.talk.service;
 
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
 
 public interface ImportJobService {
 
     ImportJob createImportJob(MultipartFile file);
-    void createImportJobForClassPathResource(Resource resource);
+    ImportJob createImportJob(String fileName, InputStream content);
+    /**
+     * @return the new job, or empty when a file with the same content was imported before
+     */
+    Optional<ImportJob> createImportJobForClassPathResource(Resource resource);
+
+    /**
+     * Moves a file dropped in the inbox into the upload directory and queues its import.
+     *
+     * @return the new job, or empty when a file with the same content was imported before
+     */
+    Optional<ImportJob> createImportJobForInboxFile(Path file);
+
+    /**
+     * @return the counters of the job, live while it runs on this instance, or empty when there is no such job
+     */
+    Optional<ImportJobProgressDTO> getImportProgress(Long jobId);
+
+    /**
+     * Streams the progress of the job until it has ended.
+     *
+     * @return the stream, or empty when there is no such job
+     */
+    Optional<SseEmitter> streamImportProgress(Long jobId);
+
+    /**
+     * The rows the job rejected as CSV, with line number and reason, in file order.
+     *
+     * @return a body that reads the rows while it writes them, or empty when there is no such job
+     */
+    Optional<StreamingResponseBody> getImportErrorReport(Long jobId);
+
+    /**
+     * Pauses the job. A job no worker is importing is paused right away, a running one after its current batch.
+     *
+     * @return the job's progress, or empty when there is no such job
+     * @throws com.iodigital.assignment.tedtalks.importcsv.exception.ImportJobStateException when the job has ended
+     */
+    Optional<ImportJobProgressDTO> pauseImportJob(Long jobId);
+
+    /**
+     * Cancels the job like {@link #pauseImportJob} pauses it. The talks it imported are kept.
+     *
+     * @return the job's progress, or empty when there is no such job
+     * @throws com.iodigital.assignment.tedtalks.importcsv.exception.ImportJobStateException when the job has ended
+     */
+    Optional<ImportJobProgressDTO> cancelImportJob(Long jobId);
+
+    /**
+     * Queues a paused job again, to continue from its checkpoint.
+     *
+     * @param priority the job's new priority, or null to keep it
+     * @return the job's progress, or empty when there is no such job
+     * @throws com.iodigital.assignment.tedtalks.importcsv.exception.ImportJobStateException when the job is not paused
+     */
+    Optional<ImportJobProgressDTO> resumeImportJob(Long jobId, Integer priority);
 }
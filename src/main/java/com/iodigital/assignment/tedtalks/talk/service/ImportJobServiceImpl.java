@@ -1,9 +1,19 @@
 package com.iodigital.assignment.tedtalks.talk.service;
 
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties.WriteMode;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportJobStateException;
 import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
 import com.iodigital.assignment.tedtalks.importcsv.event.FileUploadEvent;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgress;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvRows;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportErrorRepository;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobChunkRepository;
 import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
+import com.iodigital.assignment.tedtalks.importcsv.service.ImportJobControl;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,29 +21,46 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
 
 import static com.iodigital.assignment.tedtalks.common.io.FileUtils.calculateStreamHash;
+import static com.iodigital.assignment.tedtalks.common.io.FileUtils.copyAndHash;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ImportJobServiceImpl implements ImportJobService {
 
+    private static final int STORED_HASH_PREFIX_LENGTH = 16;
     private static final String FILE_ALREADY_PROCESSED_MESSAGE = "File has already been processed, skipping import job creation.";
 
     @Value("${tedtalks.upload.dir}")
     private String uploadDir;
 
     private final ImportJobRepository importJobRepository;
+    private final ImportJobChunkRepository importJobChunkRepository;
+    private final ImportErrorRepository importErrorRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final CsvImportProperties csvImportProperties;
+    private final ImportProgressRegistry progressRegistry;
+    private final ImportJobControl importJobControl;
 
     @PostConstruct
     public void init() {
@@ -50,19 +77,8 @@ public class ImportJobServiceImpl implements ImportJobService {
 
     @Override
     public ImportJob createImportJob(MultipartFile file) {
-        try {
-            final var fileName = file.getOriginalFilename();
-            final var fileHash = calculateStreamHash(file.getInputStream());
-            if (isFileAlreadyProcessed(fileHash)) {
-                log.info(FILE_ALREADY_PROCESSED_MESSAGE);
-                return importJobRepository.findByFileHash(fileHash).orElse(null);
-            }
-            Path uploadPath = Paths.get(uploadDir);
-            // Save the file with original filename
-            assert fileName != null;
-            Path filePath = uploadPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            return createAndPublishJob(fileName, filePath.toString(), fileHash);
+        try (InputStream content = file.getInputStream()) {
+            return createImportJob(file.getOriginalFilename(), content);
         } catch (Exception e) {
             log.error("Error creating import job for file: {}", file.getOriginalFilename(), e);
             return null;
@@ -70,9 +86,42 @@ public class ImportJobServiceImpl implements ImportJobService {
 
     }
 
+    /**
+     * The content is hashed while it is written to a temporary file next to its final location, so it is read once
+     * and stored with a single rename. A file that was imported before is dropped again, unless upserts are enabled.
+     */
+    @Override
+    public ImportJob createImportJob(String fileName, InputStream content) {
+        Objects.requireNonNull(fileName, "fileName cannot be null");
+        // Keep only the name so a client supplied path cannot leave the upload directory
+        String storedName = Paths.get(fileName).getFileName().toString();
+        Path uploadPath = Paths.get(uploadDir);
+        Path partFile = null;
+        try {
+            partFile = Files.createTempFile(uploadPath, storedName + ".", ".part");
+            String fileHash = copyAndHash(content, partFile);
+            Optional<ImportJob> existingJob = importJobRepository.findByFileHash(fileHash);
+            if (existingJob.isPresent() && !isReimportable(existingJob.get())) {
+                log.info(FILE_ALREADY_PROCESSED_MESSAGE);
+                return existingJob.get();
+            }
+            Path filePath = storedPath(storedName, fileHash);
+            Files.move(partFile, filePath, StandardCopyOption.REPLACE_EXISTING);
+            return existingJob.map(job -> restartAndPublishJob(job, filePath.toString()))
+                    .orElseGet(() -> createAndPublishJob(storedName, filePath.toString(), fileHash));
+        } catch (IOException e) {
+            throw new TedTalkImportException("Failed to store uploaded file " + storedName, e);
+        } finally {
+            deletePartFile(partFile);
+        }
+    }
+
+    /**
+     * Not transactional: the file is hashed before a connection is needed. No event is published, the caller
+     * imports the returned job itself.
+     */
     @Override
-    @Transactional
-    public void createImportJobForClassPathResource(Resource resource) {
+    public Optional<ImportJob> createImportJobForClassPathResource(Resource resource) {
         if (resource == null || !resource.exists()) {
             throw new IllegalArgumentException("Resource not found: " + resource);
         }
@@ -81,30 +130,200 @@ public class ImportJobServiceImpl implements ImportJobService {
             String fileHash = calculateStreamHash(resource.getInputStream());
             if (isFileAlreadyProcessed(fileHash)) {
                 log.info(FILE_ALREADY_PROCESSED_MESSAGE);
-                return;
+                return Optional.empty();
             }
             assert fileName != null;
-            createAndPublishJob(fileName, resource.getFile().getAbsolutePath(), fileHash);
+            return Optional.of(importJobRepository.save(newJob(fileName, resource.getFile().getAbsolutePath(), fileHash)));
         } catch (IOException e) {
             log.error("Error creating import job for resource: {}", resource.getFilename(), e);
             throw new TedTalkImportException("Failed to create import job for resource", e);
         }
     }
 
+    /**
+     * The file is hashed where it was dropped, so a duplicate is deleted without touching the upload directory.
+     */
+    @Override
+    public Optional<ImportJob> createImportJobForInboxFile(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            String fileHash;
+            try (InputStream content = Files.newInputStream(file)) {
+                fileHash = calculateStreamHash(content);
+            }
+            Optional<ImportJob> existingJob = importJobRepository.findByFileHash(fileHash);
+            if (existingJob.isPresent() && !isReimportable(existingJob.get())) {
+                log.info(FILE_ALREADY_PROCESSED_MESSAGE);
+                Files.delete(file);
+                return Optional.empty();
+            }
+            Path filePath = storedPath(fileName, fileHash);
+            Files.move(file, filePath, StandardCopyOption.REPLACE_EXISTING);
+            return Optional.of(existingJob.map(job -> restartAndPublishJob(job, filePath.toString()))
+                    .orElseGet(() -> createAndPublishJob(fileName, filePath.toString(), fileHash)));
+        } catch (IOException e) {
+            throw new TedTalkImportException("Failed to create import job for inbox file " + fileName, e);
+        }
+    }
+
+    /**
+     * A running job is answered from memory, import_jobs is only read for jobs that do not run on this instance.
+     */
+    @Override
+    public Optional<ImportJobProgressDTO> getImportProgress(Long jobId) {
+        return progressRegistry.find(jobId)
+                .or(() -> importJobRepository.findById(jobId).map(ImportProgress::snapshotOf));
+    }
+
+    @Override
+    public Optional<SseEmitter> streamImportProgress(Long jobId) {
+        if (progressRegistry.find(jobId).isEmpty() && !importJobRepository.existsById(jobId)) {
+            return Optional.empty();
+        }
+        return Optional.of(progressRegistry.subscribe(jobId, () -> importJobRepository.findById(jobId)
+                .map(ImportProgress::snapshotOf)
+                .orElseThrow()));
+    }
+
+    @Override
+    public Optional<StreamingResponseBody> getImportErrorReport(Long jobId) {
+        if (!importJobRepository.existsById(jobId)) {
+            return Optional.empty();
+        }
+        return Optional.of(out -> writeImportErrors(jobId, out));
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> pauseImportJob(Long jobId) {
+        return stopImportJob(jobId, ImportJob.Status.PAUSED);
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> cancelImportJob(Long jobId) {
+        return stopImportJob(jobId, ImportJob.Status.CANCELLED);
+    }
+
+    /**
+     * Published like a new upload, so the job is started here when a worker is idle and is otherwise claimed from the
+     * queue in priority order.
+     */
+    @Override
+    public Optional<ImportJobProgressDTO> resumeImportJob(Long jobId, Integer priority) {
+        return importJobRepository.findById(jobId).map(job -> {
+            if (job.getStatus() != ImportJob.Status.PAUSED) {
+                throw new ImportJobStateException("Import job %d is %s, only a paused job can be resumed"
+                        .formatted(jobId, job.getStatus()));
+            }
+            job.setStatus(ImportJob.Status.PENDING);
+            if (priority != null) {
+                job.setPriority(priority);
+            }
+            ImportJob savedJob = importJobRepository.save(job);
+            log.info("Resuming import job {} after line {} with priority {}",
+                    jobId, savedJob.getLastProcessedLine(), savedJob.getPriority());
+            eventPublisher.publishEvent(new FileUploadEvent(savedJob));
+            return ImportProgress.snapshotOf(savedJob);
+        });
+    }
+
+    private Optional<ImportJobProgressDTO> stopImportJob(Long jobId, ImportJob.Status status) {
+        if (importJobRepository.stopUnclaimed(jobId, status.name()) == 1) {
+            log.info("Import job {} is {}", jobId, status.name().toLowerCase());
+            return importJobRepository.findById(jobId).map(ImportProgress::snapshotOf);
+        }
+        if (importJobRepository.requestStop(jobId, status.name()) == 1) {
+            // The worker importing the job reads the request at its next batch, unless it runs right here
+            if (progressRegistry.find(jobId).isPresent()) {
+                importJobControl.requestStop(jobId, status);
+            }
+            log.info("Asked the import of job {} to stop as {}", jobId, status);
+            return getImportProgress(jobId);
+        }
+        Optional<ImportJob> job = importJobRepository.findById(jobId);
+        if (job.isPresent()) {
+            throw new ImportJobStateException("Import job %d has already ended as %s".formatted(jobId, job.get().getStatus()));
+        }
+        return Optional.empty();
+    }
+
+    private void writeImportErrors(Long jobId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CsvRows.format("line_number", "reason", "raw_row"));
+        writer.write('\n');
+        try {
+            importErrorRepository.forEachByImportJobId(jobId, error -> {
+                try {
+                    writer.write(CsvRows.format(Long.toString(error.lineNumber()), error.reason(), error.rawRow()));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void deletePartFile(Path partFile) {
+        if (partFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary upload file {}", partFile, e);
+        }
+    }
+
+    /**
+     * Files are stored under a prefix of their hash, so a file with the same name as one an unfinished job still reads
+     * never replaces it. Only the same content is stored at the same path again.
+     */
+    private Path storedPath(String fileName, String fileHash) {
+        return Paths.get(uploadDir).resolve(fileHash.substring(0, STORED_HASH_PREFIX_LENGTH) + "_" + fileName);
+    }
+
     private boolean isFileAlreadyProcessed(String fileHash) {
         return importJobRepository.findByFileHash(fileHash).isPresent();
     }
 
+    /**
+     * In upsert mode a file seen before is imported again to refresh views and likes, once its last import has ended.
+     */
+    private boolean isReimportable(ImportJob job) {
+        return csvImportProperties.getWriteMode() == WriteMode.UPSERT
+                && (job.getStatus() == ImportJob.Status.COMPLETED || job.getStatus() == ImportJob.Status.FAILED
+                    || job.getStatus() == ImportJob.Status.CANCELLED);
+    }
+
+    /**
+     * Reuses the job row of the earlier import, file_hash is unique, and starts it from the first record again.
+     */
+    private ImportJob restartAndPublishJob(ImportJob job, String filePath) {
+        log.info("Importing {} again to refresh existing talks", job.getFileName());
+        importJobChunkRepository.deleteByImportJobId(job.getId());
+        importErrorRepository.deleteByImportJobId(job.getId());
+        job.setFilePath(filePath);
+        job.setStatus(ImportJob.Status.PENDING);
+        job.resetProgress();
+        ImportJob savedJob = importJobRepository.save(job);
+        eventPublisher.publishEvent(new FileUploadEvent(savedJob));
+        return savedJob;
+    }
+
     private ImportJob createAndPublishJob(String fileName, String filePath, String fileHash) {
-        ImportJob job = ImportJob.builder()
+        ImportJob savedJob = importJobRepository.save(newJob(fileName, filePath, fileHash));
+        eventPublisher.publishEvent(new FileUploadEvent(savedJob));
+        return savedJob;
+    }
+
+    private static ImportJob newJob(String fileName, String filePath, String fileHash) {
+        return ImportJob.builder()
                 .fileName(fileName)
                 .filePath(filePath)
                 .fileHash(fileHash)
                 .status(ImportJob.Status.PENDING)
                 .build();
-
-        ImportJob savedJob = importJobRepository.save(job);
-        eventPublisher.publishEvent(new FileUploadEvent(savedJob));
-        return savedJob;
     }
 }
@@ -1,11 +1,15 @@
 package com.iodigital.assignment.tedtalks.talk.service;
 
 import com.iodigital.assignment.tedtalks.talk.dto.ImportFileDTO;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
 import com.iodigital.assignment.tedtalks.talk.dto.TedTalkDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -68,4 +72,62 @@ public interface TedTalkService {
      */
     ImportFileDTO importTedTalksFromCsv(MultipartFile file);
 
+    /**
+     * Import TedTalks from a CSV stream, reading the content only once
+     *
+     * @param fileName the name the file is stored under
+     * @param content  the CSV content
+     * @return ImportFileDTO containing the result of the import operation
+     */
+    ImportFileDTO importTedTalksFromCsv(String fileName, InputStream content);
+
+    /**
+     * Get the progress of an import job
+     *
+     * @param jobId the import job ID
+     * @return the job's counters, throughput and estimated time left if found
+     */
+    Optional<ImportJobProgressDTO> getImportProgress(Long jobId);
+
+    /**
+     * Stream the progress of an import job as server-sent events
+     *
+     * @param jobId the import job ID
+     * @return the event stream if the job is found
+     */
+    Optional<SseEmitter> streamImportProgress(Long jobId);
+
+    /**
+     * Download the rows an import job rejected
+     *
+     * @param jobId the import job ID
+     * @return the CSV report if the job is found
+     */
+    Optional<StreamingResponseBody> getImportErrorReport(Long jobId);
+
+    /**
+     * Pause an import job, it stops after its current batch and can be resumed
+     *
+     * @param jobId the import job ID
+     * @return the job's progress if found
+     */
+    Optional<ImportJobProgressDTO> pauseImportJob(Long jobId);
+
+    /**
+     * Cancel an import job, keeping the talks it imported
+     *
+     * @param jobId the import job ID
+     * @return the job's progress if found
+     */
+    Optional<ImportJobProgressDTO> cancelImportJob(Long jobId);
+
+    /**
+     * Resume a paused import job from its checkpoint
+     *
+     * @param jobId the import job ID
+     * @param priority the job's new priority in the queue, or null to keep it
+     * @return the job's progress if found
+     */
+    Optional<ImportJobProgressDTO> resumeImportJob(Long jobId, Integer priority);
+
 }
@@ -1,6 +1,7 @@
 package com.iodigital.assignment.tedtalks.talk.service;
 
 import com.iodigital.assignment.tedtalks.talk.dto.ImportFileDTO;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
 import com.iodigital.assignment.tedtalks.talk.dto.TedTalkDTO;
 import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
 import com.iodigital.assignment.tedtalks.common.mapper.TedTalkMapper;
@@ -12,7 +13,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -87,4 +91,41 @@ public class TedTalkServiceImpl implements TedTalkService {
         final var job = importJobService.createImportJob(file);
         return ImportFileDTO.builder().jobId(job.getId()).build();
     }
+
+    // Not transactional: no connection is held while the upload is streamed to disk
+    @Override
+    public ImportFileDTO importTedTalksFromCsv(String fileName, InputStream content) {
+        final var job = importJobService.createImportJob(fileName, content);
+        return ImportFileDTO.builder().jobId(job.getId()).build();
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> getImportProgress(Long jobId) {
+        return importJobService.getImportProgress(jobId);
+    }
+
+    @Override
+    public Optional<SseEmitter> streamImportProgress(Long jobId) {
+        return importJobService.streamImportProgress(jobId);
+    }
+
+    @Override
+    public Optional<StreamingResponseBody> getImportErrorReport(Long jobId) {
+        return importJobService.getImportErrorReport(jobId);
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> pauseImportJob(Long jobId) {
+        return importJobService.pauseImportJob(jobId);
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> cancelImportJob(Long jobId) {
+        return importJobService.cancelImportJob(jobId);
+    }
+
+    @Override
+    public Optional<ImportJobProgressDTO> resumeImportJob(Long jobId, Integer priority) {
+        return importJobService.resumeImportJob(jobId, priority);
+    }
 }
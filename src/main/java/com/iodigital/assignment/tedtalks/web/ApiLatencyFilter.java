@@ -0,0 +1,43 @@
+package com.iodigital.assignment.tedtalks.web;
+
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportLoadGovernor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Hands the latency of API requests to the {@link ImportLoadGovernor}. Import endpoints are left out, an upload or a
+ * progress stream takes as long as the client keeps it open.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApiLatencyFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+    private static final String IMPORT_PATH = "/api/v1/tedtalks/import";
+
+    private final ImportLoadGovernor importLoadGovernor;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(API_PATH) || path.startsWith(IMPORT_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            importLoadGovernor.apiRequestCompleted(System.nanoTime() - start);
+        }
+    }
+}
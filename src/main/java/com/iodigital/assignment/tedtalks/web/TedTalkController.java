@@ -1,6 +1,7 @@
 package com.iodigital.assignment.tedtalks.web;
 
 import com.iodigital.assignment.tedtalks.talk.dto.ImportFileDTO;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
 import com.iodigital.assignment.tedtalks.talk.dto.TedTalkDTO;
 import com.iodigital.assignment.tedtalks.talk.service.TedTalkService;
 import jakarta.validation.Valid;
@@ -10,12 +11,19 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
 
 
 @RestController
@@ -25,6 +33,8 @@ import java.util.List;
 public class TedTalkController {
 
     private static final String CSV_MIME_TYPE = "text/csv";
+    private static final String GZIP_MIME_TYPE = "application/gzip";
+    private static final Set<String> ACCEPTED_MIME_TYPES = Set.of(CSV_MIME_TYPE, GZIP_MIME_TYPE, "application/x-gzip");
 
     private final TedTalkService tedTalkService;
 
@@ -78,16 +88,75 @@ public class TedTalkController {
         }
 
         // Check MIME type
-        if (!CSV_MIME_TYPE.equals(file.getContentType())) {
+        if (!ACCEPTED_MIME_TYPES.contains(file.getContentType())) {
             return ResponseEntity
                     .badRequest()
-                    .body(ImportFileDTO.builder().response("Only CSV files are allowed").build());
+                    .body(ImportFileDTO.builder().response("Only CSV or gzip compressed CSV files are allowed").build());
         }
 
         final var response = tedTalkService.importTedTalksFromCsv(file);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    // Streams the raw request body straight into the upload directory, without a multipart copy in between.
+    // Gzip bodies are stored compressed and inflated while they are imported.
+    @PostMapping(value = "/import", consumes = {CSV_MIME_TYPE, GZIP_MIME_TYPE})
+    public ResponseEntity<ImportFileDTO> importTedTalksStream(@RequestParam("fileName") String fileName,
+                                                              InputStream content) {
+        final var response = tedTalkService.importTedTalksFromCsv(fileName, content);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobProgressDTO> getImportProgress(@PathVariable Long jobId) {
+        return tedTalkService.getImportProgress(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Sends a "progress" event as batches are committed and closes the stream once the import has ended
+    @GetMapping(value = "/import/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportProgress(@PathVariable Long jobId) {
+        return tedTalkService.streamImportProgress(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Rows the import rejected with line number and reason, written out while they are read from the database
+    @GetMapping(value = "/import/{jobId}/errors", produces = CSV_MIME_TYPE)
+    public ResponseEntity<StreamingResponseBody> downloadImportErrors(@PathVariable Long jobId) {
+        return tedTalkService.getImportErrorReport(jobId)
+                .map(report -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("import-" + jobId + "-errors.csv").build().toString())
+                        .body(report))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Frees the database right away: a job nobody imports stops at once, a running one after its current batch
+    @PostMapping("/import/{jobId}/pause")
+    public ResponseEntity<ImportJobProgressDTO> pauseImport(@PathVariable Long jobId) {
+        return tedTalkService.pauseImportJob(jobId)
+                .map(progress -> ResponseEntity.accepted().body(progress))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/import/{jobId}/cancel")
+    public ResponseEntity<ImportJobProgressDTO> cancelImport(@PathVariable Long jobId) {
+        return tedTalkService.cancelImportJob(jobId)
+                .map(progress -> ResponseEntity.accepted().body(progress))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Continues a paused job from its checkpoint, jobs with a higher priority are picked from the queue first
+    @PostMapping("/import/{jobId}/resume")
+    public ResponseEntity<ImportJobProgressDTO> resumeImport(@PathVariable Long jobId,
+                                                             @RequestParam(required = false) Integer priority) {
+        return tedTalkService.resumeImportJob(jobId, priority)
+                .map(progress -> ResponseEntity.accepted().body(progress))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/by-speaker")
     public ResponseEntity<List<TedTalkDTO>> getAllTedTalksBySpeaker(@RequestParam(required = false) String speaker) {
         return ResponseEntity.ok(tedTalkService.getAllTedTalksBySpeaker(speaker));
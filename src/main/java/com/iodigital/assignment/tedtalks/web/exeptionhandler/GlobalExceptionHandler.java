@@ -1,5 +1,6 @@
 package com.iodigital.assignment.tedtalks.web.exeptionhandler;
 
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportJobStateException;
 import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
 import jakarta.annotation.Nonnull;
 import jakarta.persistence.EntityNotFoundException;
@@ -77,6 +78,19 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.NOT_FOUND);
     }
 
+    // Handle pause, cancel and resume requests for jobs in the wrong state
+    @ExceptionHandler(ImportJobStateException.class)
+    public ResponseEntity<ApiErrorDTO> handleImportJobStateException(ImportJobStateException ex) {
+        ApiErrorDTO apiError = new ApiErrorDTO(
+                HttpStatus.CONFLICT,
+                "Import Job State Conflict",
+                ex.getMessage(),
+                null
+        );
+
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+
     // Handle data integrity violations (e.g., duplicate entries)
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<ApiErrorDTO> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
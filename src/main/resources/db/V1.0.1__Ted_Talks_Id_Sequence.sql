@@ -0,0 +1,11 @@
+-- Pooled sequence for ted_talks ids. IDENTITY columns force Hibernate to insert every entity on its own
+-- to read back the generated key, which disables JDBC batching. The increment matches the entity's
+-- allocationSize and hibernate.jdbc.batch_size so one sequence call covers a full insert batch.
+CREATE SEQUENCE ted_talks_seq INCREMENT BY 50 MINVALUE 1;
+
+-- Hibernate's pooled optimizer hands out (value - 49 .. value), so start one increment above the current maximum
+SELECT setval('ted_talks_seq', COALESCE((SELECT MAX(id) FROM ted_talks), 0) + 50, false);
+
+ALTER TABLE ted_talks ALTER COLUMN id SET DEFAULT nextval('ted_talks_seq');
+ALTER SEQUENCE ted_talks_seq OWNED BY ted_talks.id;
+DROP SEQUENCE IF EXISTS ted_talks_id_seq;
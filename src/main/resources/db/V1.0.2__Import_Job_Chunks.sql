@@ -0,0 +1,17 @@
+-- Byte ranges of a CSV file that are parsed and persisted in parallel, each with its own checkpoint
+CREATE TABLE import_job_chunks (
+    id BIGSERIAL PRIMARY KEY,
+    import_job_id BIGINT NOT NULL REFERENCES import_jobs(id) ON DELETE CASCADE,
+    chunk_index INT NOT NULL,
+    start_offset BIGINT NOT NULL,
+    end_offset BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    processed_count INT NOT NULL DEFAULT 0,
+    successful_count INT NOT NULL DEFAULT 0,
+    failed_count INT NOT NULL DEFAULT 0,
+    skipped_count INT NOT NULL DEFAULT 0,
+    version BIGINT DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT unique_import_job_chunk UNIQUE (import_job_id, chunk_index)
+);
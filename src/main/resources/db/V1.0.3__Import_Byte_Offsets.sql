@@ -0,0 +1,3 @@
+-- Byte offset of the first record after the last committed batch, lets a resumed import seek instead of re-reading
+ALTER TABLE import_jobs ADD COLUMN last_processed_offset BIGINT;
+ALTER TABLE import_job_chunks ADD COLUMN last_processed_offset BIGINT;
@@ -0,0 +1,6 @@
+-- Lease of the worker that is importing a job. A job whose lease has expired can be claimed by any worker.
+ALTER TABLE import_jobs ADD COLUMN locked_by VARCHAR(255);
+ALTER TABLE import_jobs ADD COLUMN lease_expires_at TIMESTAMP;
+ALTER TABLE import_jobs ADD COLUMN heartbeat_at TIMESTAMP;
+
+CREATE INDEX idx_import_job_claimable ON import_jobs(created_at, id) WHERE status IN ('PENDING', 'IN_PROGRESS');
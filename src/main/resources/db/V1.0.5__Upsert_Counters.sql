@@ -0,0 +1,5 @@
+-- Existing talks an upsert import refreshed or found already current
+ALTER TABLE import_jobs ADD COLUMN updated_count INT NOT NULL DEFAULT 0;
+ALTER TABLE import_jobs ADD COLUMN unchanged_count INT NOT NULL DEFAULT 0;
+ALTER TABLE import_job_chunks ADD COLUMN updated_count INT NOT NULL DEFAULT 0;
+ALTER TABLE import_job_chunks ADD COLUMN unchanged_count INT NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+-- 64-bit hash of a talk's imported fields, lets a re-import skip the rows that did not change.
+-- Rows stored before this column existed get theirs when they are written again.
+ALTER TABLE ted_talks ADD COLUMN fingerprint BIGINT;
+CREATE INDEX idx_ted_talk_fingerprint ON ted_talks(fingerprint);
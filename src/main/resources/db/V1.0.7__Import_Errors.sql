@@ -0,0 +1,9 @@
+-- Rows an import rejected, with the reason, downloadable per job
+CREATE TABLE import_errors (
+    import_job_id BIGINT NOT NULL REFERENCES import_jobs(id) ON DELETE CASCADE,
+    line_number BIGINT NOT NULL,
+    raw_row TEXT,
+    reason TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (import_job_id, line_number)
+);
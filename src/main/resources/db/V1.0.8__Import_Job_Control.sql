@@ -0,0 +1,7 @@
+-- Jobs with a higher priority are claimed from the queue first
+ALTER TABLE import_jobs ADD COLUMN priority INT NOT NULL DEFAULT 0;
+-- PAUSED or CANCELLED, asked of the worker importing the job, which stops after its current batch
+ALTER TABLE import_jobs ADD COLUMN stop_requested VARCHAR(20);
+
+DROP INDEX idx_import_job_claimable;
+CREATE INDEX idx_import_job_claimable ON import_jobs(priority DESC, created_at, id) WHERE status IN ('PENDING', 'IN_PROGRESS');
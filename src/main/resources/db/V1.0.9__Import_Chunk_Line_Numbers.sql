@@ -0,0 +1,2 @@
+-- Records of the file before each chunk, so rejected rows of a chunk are reported with their line in the file
+ALTER TABLE import_job_chunks ADD COLUMN records_before BIGINT;
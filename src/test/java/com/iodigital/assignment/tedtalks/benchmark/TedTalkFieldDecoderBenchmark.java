@@ -0,0 +1,75 @@
+package com.iodigital.assignment.tedtalks.benchmark;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.DataParsingException;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkFieldDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TedTalkFieldDecoder} with the regex and formatter based parsing it replaced.
+ * <p>
+ * Run {@link #main(String[])} after {@code mvn test-compile}, with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TedTalkFieldDecoderBenchmark {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+
+    private final String[] numbers = {"526000", "15000", "1,234,567", "23000", "690", "12,000,000"};
+    private final String[] dates = {"October 2021", "May 2023", "February 2006", "September 2019", "June 2010", "December 2015"};
+
+    @Benchmark
+    public void regexLong(Blackhole blackhole) {
+        for (String value : numbers) {
+            blackhole.consume(Long.parseLong(value.replaceAll("[,\\s]", "")));
+        }
+    }
+
+    @Benchmark
+    public void decoderLong(Blackhole blackhole) throws DataParsingException {
+        for (String value : numbers) {
+            blackhole.consume(TedTalkFieldDecoder.parseLong(value, "views"));
+        }
+    }
+
+    @Benchmark
+    public void formatterDate(Blackhole blackhole) {
+        for (String value : dates) {
+            blackhole.consume(YearMonth.parse(value, DATE_FORMATTER).atDay(1));
+        }
+    }
+
+    @Benchmark
+    public void decoderDate(Blackhole blackhole) throws DataParsingException {
+        for (String value : dates) {
+            blackhole.consume(TedTalkFieldDecoder.parseDate(value));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TedTalkFieldDecoderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
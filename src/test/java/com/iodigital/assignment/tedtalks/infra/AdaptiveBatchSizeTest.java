@@ -0,0 +1,110 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.AdaptiveBatchSize;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportPipelineMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatchSizeTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private CsvImportProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ImportPipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CsvImportProperties();
+        properties.setBatchSize(100);
+        CsvImportProperties.BatchSizing sizing = properties.getBatchSizing();
+        sizing.setAdaptive(true);
+        sizing.setMinSize(50);
+        sizing.setMaxSize(200);
+        sizing.setTargetLatency(Duration.ofMillis(250));
+        sizing.setIncreaseStep(50);
+        sizing.setDecreaseFactor(0.5);
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new ImportPipelineMetrics(meterRegistry);
+    }
+
+    @Test
+    void shouldGrowByStepWhileWritesAreFastUpToMaxSize() {
+        // Given
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(properties, metrics);
+
+        // When / Then
+        batchSize.written(batchSize.next(), FAST);
+        assertEquals(150, batchSize.next());
+        batchSize.written(150, FAST);
+        batchSize.written(200, FAST);
+        assertEquals(200, batchSize.next());
+    }
+
+    @Test
+    void shouldHalveWhenWriteIsSlowDownToMinSize() {
+        // Given
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(properties, metrics);
+
+        // When / Then
+        batchSize.written(batchSize.next(), SLOW);
+        assertEquals(50, batchSize.next());
+        batchSize.written(50, SLOW);
+        assertEquals(50, batchSize.next());
+    }
+
+    @Test
+    void shouldIgnoreBatchesReadBeforeSizeChanged() {
+        // Given - three batches of 100 read ahead, then the first one is slow
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(properties, metrics);
+        batchSize.written(100, SLOW);
+
+        // When - the other two are slow as well, and a smaller last batch is fast
+        batchSize.written(100, SLOW);
+        batchSize.written(100, SLOW);
+        batchSize.written(20, FAST);
+
+        // Then - cut once, not three times
+        assertEquals(50, batchSize.next());
+    }
+
+    @Test
+    void shouldKeepConfiguredSizeWhenNotAdaptive() {
+        // Given
+        properties.getBatchSizing().setAdaptive(false);
+        properties.setBatchSize(10);
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(properties, metrics);
+
+        // When
+        batchSize.written(batchSize.next(), FAST);
+        batchSize.written(batchSize.next(), SLOW);
+
+        // Then
+        assertEquals(10, batchSize.next());
+    }
+
+    @Test
+    void shouldRecordEveryChosenSize() {
+        // Given
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(properties, metrics);
+
+        // When
+        batchSize.written(batchSize.next(), FAST);
+        batchSize.next();
+
+        // Then
+        DistributionSummary sizes = meterRegistry.get("tedtalks.import.batch.size").summary();
+        assertEquals(2, sizes.count());
+        assertEquals(250, sizes.totalAmount());
+        assertEquals(150, meterRegistry.get("tedtalks.import.batch.size.current").gauge().value());
+    }
+}
@@ -0,0 +1,121 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.importcsv.service.CsvImportService;
+import com.iodigital.assignment.tedtalks.importcsv.service.CsvResourceDiscoveryService;
+import com.iodigital.assignment.tedtalks.startup.CsvImportOrchestrator;
+import com.iodigital.assignment.tedtalks.startup.StartupImportHealthIndicator;
+import com.iodigital.assignment.tedtalks.talk.service.ImportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CsvImportOrchestratorTest {
+
+    @Mock private CsvResourceDiscoveryService resourceDiscoveryService;
+    @Mock private ImportJobService importJobService;
+    @Mock private CsvImportService csvImportService;
+
+    private final StartupImportHealthIndicator healthIndicator = new StartupImportHealthIndicator();
+    private final List<Runnable> queuedTasks = new ArrayList<>();
+
+    private CsvImportOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        TaskExecutor queueingExecutor = queuedTasks::add;
+        orchestrator = new CsvImportOrchestrator(resourceDiscoveryService, importJobService, csvImportService,
+                healthIndicator, queueingExecutor);
+    }
+
+    @Test
+    void shouldImportLargestFilesFirstOffTheEventThread() {
+        // Given
+        Resource small = resource("small.csv", 10);
+        Resource large = resource("large.csv", 1000);
+        Resource medium = resource("medium.csv", 100);
+        when(resourceDiscoveryService.discoverResources()).thenReturn(List.of(small, large, medium));
+        when(importJobService.createImportJobForClassPathResource(any())).thenAnswer(invocation -> Optional.of(job()));
+        doAnswer(invocation -> {
+            invocation.<ImportJob>getArgument(0).setStatus(Status.COMPLETED);
+            return null;
+        }).when(csvImportService).startImportJob(any());
+
+        // When
+        orchestrator.importFilesOnStartup();
+
+        // Then - nothing is imported on the event thread
+        verifyNoInteractions(importJobService, csvImportService);
+        assertFalse(healthIndicator.isFinished());
+
+        queuedTasks.forEach(Runnable::run);
+        InOrder inOrder = inOrder(importJobService);
+        inOrder.verify(importJobService).createImportJobForClassPathResource(large);
+        inOrder.verify(importJobService).createImportJobForClassPathResource(medium);
+        inOrder.verify(importJobService).createImportJobForClassPathResource(small);
+        verify(csvImportService, times(3)).startImportJob(any());
+        assertTrue(healthIndicator.isFinished());
+    }
+
+    @Test
+    void shouldReportFinishedWithFailuresAndStayUp() {
+        // Given
+        Resource imported = resource("imported.csv", 10);
+        Resource broken = resource("broken.csv", 20);
+        when(resourceDiscoveryService.discoverResources()).thenReturn(List.of(imported, broken));
+        when(importJobService.createImportJobForClassPathResource(imported)).thenReturn(Optional.empty());
+        when(importJobService.createImportJobForClassPathResource(broken)).thenThrow(new IllegalStateException("boom"));
+
+        // When
+        orchestrator = new CsvImportOrchestrator(resourceDiscoveryService, importJobService, csvImportService,
+                healthIndicator, new SyncTaskExecutor());
+        orchestrator.importFilesOnStartup();
+
+        // Then
+        Health health = healthIndicator.health();
+        assertEquals(org.springframework.boot.actuate.health.Status.UP, health.getStatus());
+        assertEquals(true, health.getDetails().get("finished"));
+        assertEquals(0, health.getDetails().get("remaining"));
+        assertEquals(1, health.getDetails().get("failed"));
+        verify(csvImportService, never()).startImportJob(any());
+    }
+
+    @Test
+    void shouldBeFinishedWhenThereIsNothingToImport() {
+        when(resourceDiscoveryService.discoverResources()).thenReturn(List.of());
+
+        orchestrator.importFilesOnStartup();
+
+        assertTrue(healthIndicator.isFinished());
+    }
+
+    private static Resource resource(String name, int size) {
+        return new ByteArrayResource(new byte[size]) {
+            @Override
+            public String getFilename() {
+                return name;
+            }
+        };
+    }
+
+    private static ImportJob job() {
+        return ImportJob.builder().status(Status.PENDING).build();
+    }
+}
@@ -1,57 +1,140 @@
 package com.iodigital.assignment.tedtalks.infra;
 
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.exception.ImportLeaseLostException;
 import com.iodigital.assignment.tedtalks.importcsv.exception.TedTalkImportException;
-import com.iodigital.assignment.tedtalks.common.io.FileSystemResourceProvider;
+import com.iodigital.assignment.tedtalks.importcsv.event.FileUploadEvent;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.importcsv.service.ChunkedCsvImportService;
 import com.iodigital.assignment.tedtalks.importcsv.service.CsvProcessingService;
 import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
 import com.iodigital.assignment.tedtalks.importcsv.reader.CsvReaderFactory;
 import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
 import com.iodigital.assignment.tedtalks.importcsv.service.CsvImportService;
+import com.iodigital.assignment.tedtalks.importcsv.service.ImportJobControl;
+import com.iodigital.assignment.tedtalks.importcsv.service.ImportJobQueue;
 import com.opencsv.exceptions.CsvValidationException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CsvImportServiceTest {
 
     @Mock private ImportJobRepository importJobRepository;
-    @Mock private FileSystemResourceProvider fileResourceProvider;
     @Mock private CsvReaderFactory csvReaderFactory;
     @Mock private CsvProcessingService csvProcessingService;
     @Mock private TedTalkCSVReader csvReader;
-    @Mock private InputStream inputStream;
+    @Mock private TaskExecutor importTaskExecutor;
+    @Mock private ChunkedCsvImportService chunkedCsvImportService;
+    @Mock private ImportJobQueue importJobQueue;
+    @Mock private TaskScheduler taskScheduler;
+    @Mock private ScheduledFuture<?> heartbeat;
+    @Mock private ImportProgressRegistry progressRegistry;
+    @Spy private CsvImportProperties csvImportProperties = new CsvImportProperties();
+    @Spy private ImportJobControl importJobControl = new ImportJobControl(mock(ImportJobQueue.class));
 
     @InjectMocks
     private CsvImportService csvImportService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(importJobRepository.save(any(ImportJob.class))).thenAnswer(returnsFirstArg());
+        lenient().when(importJobQueue.saveHeld(any(ImportJob.class))).thenAnswer(returnsFirstArg());
+        lenient().when(importJobQueue.claim(any())).thenReturn(true);
+        lenient().when(importJobQueue.renewLease(any())).thenReturn(true);
+        lenient().doReturn(heartbeat).when(taskScheduler).scheduleAtFixedRate(any(Runnable.class), any(Instant.class), any(Duration.class));
+    }
+
+    @Test
+    void shouldRunUploadedFileOnImportExecutor() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+
+        // When
+        csvImportService.handleFileUploadedEvent(new FileUploadEvent(job));
+
+        // Then - nothing runs on the publishing thread
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(importTaskExecutor).execute(task.capture());
+        verify(csvProcessingService, never()).processImportJob(any(), any());
+
+        task.getValue().run();
+        verify(csvProcessingService).processImportJob(job, csvReader);
+        assertEquals(Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void shouldImportLargeFileInChunks() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/large.csv");
+        when(chunkedCsvImportService.shouldSplit(job)).thenReturn(true);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        verify(chunkedCsvImportService).processImportJob(job);
+        verify(csvProcessingService, never()).processImportJob(any(), any());
+        assertEquals(Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void shouldFailJobWhenImportQueueIsFull() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        doThrow(new TaskRejectedException("Queue full")).when(importTaskExecutor).execute(any(Runnable.class));
+
+        // When
+        csvImportService.handleFileUploadedEvent(new FileUploadEvent(job));
+
+        // Then
+        verify(csvProcessingService, never()).processImportJob(any(), any());
+        verify(importJobRepository).save(job);
+        assertEquals(Status.FAILED, job.getStatus());
+    }
+
     @Test
     void shouldCompleteImportSuccessfully() throws IOException, CsvValidationException {
         // Given
         ImportJob job = createImportJob("/test/file.csv");
 
-        when(fileResourceProvider.getInputStream("/test/file.csv")).thenReturn(inputStream);
-        when(csvReaderFactory.createTedTalkReader(inputStream)).thenReturn(csvReader);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
 
         // When
         csvImportService.startImportJob(job);
 
         // Then
         verify(csvProcessingService).processImportJob(job, csvReader);
-        verify(importJobRepository).save(job);
+        verify(importJobQueue).saveHeld(job);
         assertEquals(Status.COMPLETED, job.getStatus());
-        verify(inputStream).close(); // Verify resource cleanup
+        verify(csvReader).close(); // Verify resource cleanup
     }
 
     @Test
@@ -59,15 +142,15 @@ class CsvImportServiceTest {
         // Given
         ImportJob job = createImportJob("/invalid/file.csv");
 
-        when(fileResourceProvider.getInputStream("/invalid/file.csv"))
-                .thenThrow(new IOException("File not found"));
+        when(csvReaderFactory.createTedTalkReader(Path.of("/invalid/file.csv")))
+                .thenThrow(new NoSuchFileException("/invalid/file.csv"));
 
         // When
         csvImportService.startImportJob(job);
 
         // Then
         verify(csvProcessingService, never()).processImportJob(any(), any());
-        verify(importJobRepository).save(job);
+        verify(importJobQueue).saveHeld(job);
         assertEquals(Status.FAILED, job.getStatus());
     }
 
@@ -76,8 +159,7 @@ class CsvImportServiceTest {
         // Given
         ImportJob job = createImportJob("/test/corrupted.csv");
 
-        when(fileResourceProvider.getInputStream("/test/corrupted.csv")).thenReturn(inputStream);
-        when(csvReaderFactory.createTedTalkReader(inputStream))
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath())))
                 .thenThrow(new TedTalkImportException("Invalid CSV format"));
 
         // When
@@ -85,7 +167,7 @@ class CsvImportServiceTest {
 
         // Then
         verify(csvProcessingService, never()).processImportJob(any(), any());
-        verify(importJobRepository).save(job);
+        verify(importJobQueue).saveHeld(job);
         assertEquals(Status.FAILED, job.getStatus());
     }
 
@@ -94,8 +176,7 @@ class CsvImportServiceTest {
         // Given
         ImportJob job = createImportJob("/test/file.csv");
 
-        when(fileResourceProvider.getInputStream("/test/file.csv")).thenReturn(inputStream);
-        when(csvReaderFactory.createTedTalkReader(inputStream)).thenReturn(csvReader);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
         doThrow(new RuntimeException("Database connection failed"))
                 .when(csvProcessingService).processImportJob(job, csvReader);
 
@@ -103,7 +184,7 @@ class CsvImportServiceTest {
         csvImportService.startImportJob(job);
 
         // Then
-        verify(importJobRepository).save(job);
+        verify(importJobQueue).saveHeld(job);
         assertEquals(Status.FAILED, job.getStatus());
     }
 
@@ -112,8 +193,7 @@ class CsvImportServiceTest {
         // Given
         ImportJob job = createImportJob("/test/file.csv");
 
-        when(fileResourceProvider.getInputStream("/test/file.csv")).thenReturn(inputStream);
-        when(csvReaderFactory.createTedTalkReader(inputStream)).thenReturn(csvReader);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
         doThrow(new RuntimeException("Unexpected error"))
                 .when(csvProcessingService).processImportJob(job, csvReader);
 
@@ -121,11 +201,166 @@ class CsvImportServiceTest {
         csvImportService.startImportJob(job);
 
         // Then
-        verify(inputStream).close(); // Resources should still be cleaned up
-        verify(csvReader).close();
+        verify(csvReader).close(); // Resources should still be cleaned up
         assertEquals(Status.FAILED, job.getStatus());
     }
 
+    @Test
+    void shouldSkipJobClaimedByAnotherWorker() throws IOException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        when(importJobQueue.claim(job)).thenReturn(false);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        verify(chunkedCsvImportService, never()).shouldSplit(any());
+        verifyNoInteractions(csvProcessingService, taskScheduler);
+        assertEquals(Status.PENDING, job.getStatus());
+    }
+
+    @Test
+    void shouldRenewLeaseWhileImportingAndReleaseIt() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        ArgumentCaptor<Runnable> renewal = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).scheduleAtFixedRate(renewal.capture(), any(Instant.class), eq(Duration.ofSeconds(20)));
+        renewal.getValue().run();
+        verify(importJobQueue).renewLease(job);
+        verify(heartbeat).cancel(false);
+        verify(importJobQueue).release(job);
+        assertEquals(Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void shouldAbandonJobWithoutWritingItsStatusWhenLeaseWasLost() throws IOException, CsvValidationException {
+        // Given - another worker claimed the job while a batch was written
+        ImportJob job = createImportJob("/test/file.csv");
+        job.setId(1L);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        doThrow(new ImportLeaseLostException(1L)).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        verify(importJobQueue, never()).saveHeld(any());
+        verify(importJobQueue).release(job);
+        assertEquals(Status.PENDING, job.getStatus());
+    }
+
+    @Test
+    void shouldAbandonImportAtNextBatchWhenLeaseCannotBeRenewed() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        job.setId(1L);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        when(importJobQueue.renewLease(job)).thenReturn(false);
+        ArgumentCaptor<Runnable> renewal = ArgumentCaptor.forClass(Runnable.class);
+        doAnswer(invocation -> {
+            verify(taskScheduler).scheduleAtFixedRate(renewal.capture(), any(Instant.class), any(Duration.class));
+            renewal.getValue().run();
+            importJobControl.checkLease(1L);
+            return null;
+        }).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        verify(importJobQueue, never()).findStopRequest(any());
+        verify(importJobQueue, never()).saveHeld(any());
+        assertEquals(Status.PENDING, job.getStatus());
+        assertDoesNotThrow(() -> importJobControl.checkLease(1L));
+    }
+
+    @Test
+    void shouldPauseJobWhenPauseWasRequestedDuringImport() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        job.setId(1L);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        doAnswer(invocation -> {
+            importJobControl.requestStop(1L, Status.PAUSED);
+            importJobControl.markStopped(1L);
+            return null;
+        }).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        assertEquals(Status.PAUSED, job.getStatus());
+        verify(importJobQueue).saveHeld(job);
+        assertFalse(importJobControl.isStopRequested(1L));
+    }
+
+    @Test
+    void shouldCompleteJobThatReadItsWholeFileBeforePauseWasSeen() throws IOException, CsvValidationException {
+        // Given - the pause arrives while the last batch is written
+        ImportJob job = createImportJob("/test/file.csv");
+        job.setId(1L);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        doAnswer(invocation -> {
+            importJobControl.requestStop(1L, Status.PAUSED);
+            return null;
+        }).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        assertEquals(Status.COMPLETED, job.getStatus());
+        assertFalse(importJobControl.isStopRequested(1L));
+    }
+
+    @Test
+    void shouldCancelJobWhenCancelWasRequestedOnAnotherNode() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        job.setId(1L);
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        when(importJobQueue.findStopRequest(job)).thenReturn(Optional.of(Status.CANCELLED));
+        ArgumentCaptor<Runnable> renewal = ArgumentCaptor.forClass(Runnable.class);
+        doAnswer(invocation -> {
+            verify(taskScheduler).scheduleAtFixedRate(renewal.capture(), any(Instant.class), any(Duration.class));
+            renewal.getValue().run();
+            importJobControl.markStopped(1L);
+            return null;
+        }).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then
+        verify(importJobQueue).renewLease(job);
+        assertEquals(Status.CANCELLED, job.getStatus());
+    }
+
+    @Test
+    void shouldTrackProgressUntilFailedImportEnds() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = createImportJob("/test/file.csv");
+        when(csvReaderFactory.createTedTalkReader(Path.of(job.getFilePath()))).thenReturn(csvReader);
+        doThrow(new IOException("Processing failed")).when(csvProcessingService).processImportJob(job, csvReader);
+
+        // When
+        csvImportService.startImportJob(job);
+
+        // Then - subscribers get the final status
+        InOrder inOrder = inOrder(progressRegistry, csvProcessingService);
+        inOrder.verify(progressRegistry).start(job);
+        inOrder.verify(csvProcessingService).processImportJob(job, csvReader);
+        inOrder.verify(progressRegistry).finish(argThat(finished -> finished.getStatus() == Status.FAILED));
+    }
+
     private ImportJob createImportJob(String filePath) {
         ImportJob job = new ImportJob();
         job.setFilePath(filePath);
@@ -0,0 +1,111 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.service.CsvInboxWatcher;
+import com.iodigital.assignment.tedtalks.talk.service.ImportJobService;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CsvInboxWatcherTest {
+
+    private static final String HEADER = "title,author,date,views,likes,link\n";
+    private static final String ROW = "Talk,Speaker,May 2020,1000,10,https://www.ted.com/talks/talk\n";
+
+    @Mock private ImportJobService importJobService;
+
+    @TempDir
+    Path inbox;
+
+    private CsvInboxWatcher watcher;
+    private final List<Long> importedSizes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        CsvImportProperties properties = new CsvImportProperties();
+        properties.getInbox().setDir(inbox.toString());
+        properties.getInbox().setStabilityWindow(Duration.ofMillis(300));
+        properties.getInbox().setPollInterval(Duration.ofMillis(50));
+        watcher = new CsvInboxWatcher(properties, importJobService);
+        lenient().when(importJobService.createImportJobForInboxFile(any())).thenAnswer(invocation -> {
+            importedSizes.add(Files.size(invocation.getArgument(0)));
+            return Optional.empty();
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        watcher.stop();
+    }
+
+    @Test
+    void shouldImportFilesAlreadyInTheInbox() throws IOException {
+        // Given
+        Path file = Files.writeString(inbox.resolve("existing.csv"), HEADER + ROW);
+
+        // When
+        watcher.start();
+
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> verify(importJobService).createImportJobForInboxFile(file));
+    }
+
+    @Test
+    void shouldWaitUntilDroppedFileStopsGrowing() throws IOException, InterruptedException {
+        // Given
+        watcher.start();
+        Path file = inbox.resolve("dropped.csv");
+        Files.writeString(file, HEADER);
+
+        // When - the file keeps growing for longer than the stability window
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(100);
+            Files.writeString(file, ROW, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+
+        // Then - it is imported once, complete
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> verify(importJobService).createImportJobForInboxFile(file));
+        Thread.sleep(500);
+        verify(importJobService, times(1)).createImportJobForInboxFile(file);
+        assertEquals(List.of(Files.size(file)), importedSizes);
+    }
+
+    @Test
+    void shouldIgnoreOtherAndTemporaryFiles() throws IOException, InterruptedException {
+        // Given
+        watcher.start();
+
+        // When
+        Files.writeString(inbox.resolve("notes.txt"), "not a csv");
+        Files.writeString(inbox.resolve(".partial.csv"), HEADER);
+        Path compressed = Files.write(inbox.resolve("talks.csv.gz"), new byte[]{0x1f, (byte) 0x8b});
+
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> verify(importJobService).createImportJobForInboxFile(compressed));
+        Thread.sleep(500);
+        verifyNoMoreInteractions(importJobService);
+    }
+}
@@ -1,35 +1,69 @@
 package com.iodigital.assignment.tedtalks.infra;
 
+import com.iodigital.assignment.tedtalks.common.mapper.TedTalkMapper;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportError;
 import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportBatch;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportKeyFilter;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportKeyFilterFactory;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportLoadGovernor;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportPipelineMetrics;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
 import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkFingerprint;
 import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
 import com.iodigital.assignment.tedtalks.importcsv.service.CsvProcessingServiceImpl;
+import com.iodigital.assignment.tedtalks.importcsv.service.ImportJobControl;
+import com.iodigital.assignment.tedtalks.importcsv.service.ImportJobQueue;
 import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
 import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportErrorRepository;
 import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
+import com.iodigital.assignment.tedtalks.importcsv.validation.TedTalkRecordValidator;
+import com.iodigital.assignment.tedtalks.importcsv.writer.ImportStagingTable;
+import com.iodigital.assignment.tedtalks.importcsv.writer.JpaTedTalkBatchWriter;
+import com.iodigital.assignment.tedtalks.importcsv.writer.TedTalkBatchWriterFactory;
 import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
+import com.iodigital.assignment.tedtalks.talk.repository.projection.StoredFingerprint;
 import com.opencsv.exceptions.CsvValidationException;
-import jakarta.validation.ConstraintViolation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,23 +74,50 @@ class CsvProcessingServiceTest {
     @Mock
     private TedTalkRepository tedTalkRepository;
     @Mock
-    private Validator validator;
+    private ImportErrorRepository importErrorRepository;
     @Mock
-    private CsvImportProperties csvImportProperties;
+    private Validator validator;
     @Mock
     private TedTalkCSVReader csvReader;
+    @Mock
+    private ImportStagingTable stagingTable;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ImportKeyFilterFactory keyFilterFactory;
+    @Mock
+    private ImportJobQueue importJobQueue;
 
-    @InjectMocks
+    private CsvImportProperties csvImportProperties;
+    private ImportLoadGovernor importLoadGovernor;
+    private ImportJobControl importJobControl;
+    private SimpleMeterRegistry meterRegistry;
     private CsvProcessingServiceImpl csvProcessingService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(importJobQueue.saveHeld(any(ImportJob.class))).thenAnswer(returnsFirstArg());
+        lenient().when(importJobRepository.saveCheckpoint(any(), any(), any())).thenReturn(1);
+        lenient().when(keyFilterFactory.create(any())).thenReturn(ImportKeyFilter.none());
+        csvImportProperties = new CsvImportProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        importLoadGovernor = spy(new ImportLoadGovernor(csvImportProperties, meterRegistry));
+        importJobControl = new ImportJobControl(importJobQueue);
+        TedTalkBatchWriterFactory batchWriterFactory =
+                new TedTalkBatchWriterFactory(List.of(new JpaTedTalkBatchWriter(tedTalkRepository)));
+        csvProcessingService = new CsvProcessingServiceImpl(
+                importJobRepository, tedTalkRepository, importErrorRepository, new TedTalkRecordValidator(validator), csvImportProperties, batchWriterFactory,
+                new ImportPipelineMetrics(meterRegistry), new ImportProgressRegistry(csvImportProperties),
+                importLoadGovernor, stagingTable, importJobControl,
+                new TransactionTemplate(transactionManager), keyFilterFactory, importJobQueue);
+    }
+
     @Test
     void shouldProcessBatchSuccessfully() {
         // Given
         ImportJob job = new ImportJob();
         TedTalkRecord record = createValidTedTalkRecord();
         List<TedTalkRecord> batch = List.of(record);
-
-        when(validator.validate(any(TedTalk.class))).thenReturn(Set.of());
         when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
                 .thenReturn(Optional.empty());
 
@@ -64,7 +125,7 @@ class CsvProcessingServiceTest {
         csvProcessingService.processBatch(job, batch);
 
         // Then
-        verify(tedTalkRepository).save(any(TedTalk.class));
+        verify(tedTalkRepository).saveAll(List.of(TedTalkMapper.mapToTedTalk(record)));
         assertEquals(1, job.getSuccessfulCount());
     }
 
@@ -74,8 +135,6 @@ class CsvProcessingServiceTest {
         ImportJob job = new ImportJob();
         TedTalkRecord record = createValidTedTalkRecord();
         List<TedTalkRecord> batch = List.of(record);
-
-        when(validator.validate(any(TedTalk.class))).thenReturn(Set.of());
         when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
                 .thenReturn(Optional.of(new TedTalk()));
 
@@ -83,7 +142,7 @@ class CsvProcessingServiceTest {
         csvProcessingService.processBatch(job, batch);
 
         // Then
-        verify(tedTalkRepository, never()).save(any(TedTalk.class));
+        verify(tedTalkRepository, never()).saveAll(anyList());
         assertEquals(1, job.getSkippedCount());
     }
 
@@ -97,7 +156,7 @@ class CsvProcessingServiceTest {
         csvProcessingService.processRecord(job, record);
 
         // Then
-        verify(tedTalkRepository, never()).save(any(TedTalk.class));
+        verify(tedTalkRepository, never()).saveAll(anyList());
         assertEquals(1, job.getFailedCount());
     }
 
@@ -106,8 +165,6 @@ class CsvProcessingServiceTest {
         // Given
         ImportJob job = new ImportJob();
         TedTalkRecord record = createValidTedTalkRecord();
-
-        when(validator.validate(any(TedTalk.class))).thenReturn(Set.of());
         when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
                 .thenReturn(Optional.empty());
 
@@ -115,7 +172,7 @@ class CsvProcessingServiceTest {
         csvProcessingService.processRecord(job, record);
 
         // Then
-        verify(tedTalkRepository).save(any(TedTalk.class));
+        verify(tedTalkRepository).saveAll(List.of(TedTalkMapper.mapToTedTalk(record)));
         assertEquals(1, job.getSuccessfulCount());
     }
 
@@ -129,21 +186,105 @@ class CsvProcessingServiceTest {
         List<TedTalkRecord> batch2 = List.of(createValidTedTalkRecord());
         List<TedTalkRecord> emptyBatch = List.of();
 
-        when(csvImportProperties.getBatchSize()).thenReturn(1);
+        csvImportProperties.setBatchSize(1);
         when(csvReader.readBatch(1))
                 .thenReturn(batch1)
                 .thenReturn(batch2)
                 .thenReturn(emptyBatch);
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
+                .thenReturn(Optional.empty());
 
-        when(validator.validate(any(TedTalk.class))).thenReturn(Set.of());
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then - one transaction per batch, holding its talks and its checkpoint
+        verify(importJobQueue).saveHeld(job);
+        verify(importJobRepository, times(2)).saveCheckpoint(any(), any(), any(ImportBatch.class));
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2, job.getSuccessfulCount());
+    }
+
+    @Test
+    void shouldThrottleBatchBeforeOpeningItsTransaction() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = new ImportJob();
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(createValidTedTalkRecord()), List.of());
+        when(csvReader.getPosition()).thenReturn(-1L);
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then - a throttled batch waits without holding a connection
+        InOrder order = inOrder(importLoadGovernor, transactionManager);
+        order.verify(importLoadGovernor).acquire(1);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void shouldRollBackBatchWithItsCheckpointWhenWriteFails() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = new ImportJob();
+        csvImportProperties.setBatchSize(1);
+        when(csvReader.readBatch(1)).thenReturn(List.of(createValidTedTalkRecord()), List.of(createValidTedTalkRecord()));
+        when(csvReader.getRecordsRead()).thenReturn(2L, 3L);
+        when(csvReader.getPosition()).thenReturn(-1L);
         when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
                 .thenReturn(Optional.empty());
+        doThrow(new IllegalStateException("Connection lost")).doReturn(List.of())
+                .when(tedTalkRepository).saveAll(anyList());
+
+        // When
+        assertThrows(IllegalStateException.class, () -> csvProcessingService.processImportJob(job, csvReader));
+
+        // Then - the job still points at the last committed checkpoint
+        verify(importJobRepository, never()).saveCheckpoint(any(), any(), any(ImportBatch.class));
+        verify(transactionManager).rollback(any());
+        assertEquals(0, job.getLastProcessedLine());
+        assertEquals(0, job.getSuccessfulCount());
+    }
+
+    @Test
+    void shouldStopAtNextBatchWhenStopWasRequestedOnAnotherNode() throws IOException, CsvValidationException {
+        // Given - the request arrives while the first batch is written
+        ImportJob job = ImportJob.builder().id(1L).build();
+        TedTalkRecord second = createValidTedTalkRecord();
+        second.setTitle("Second Talk");
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(createValidTedTalkRecord()), List.of(second));
+        when(csvReader.getPosition()).thenReturn(-1L);
+        when(importJobQueue.findStopRequest(job)).thenReturn(Optional.empty(), Optional.of(ImportJob.Status.PAUSED));
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any())).thenReturn(Optional.empty());
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then - the second batch was read but not written, the job resumes before it
+        verify(tedTalkRepository).saveAll(anyList());
+        verify(importJobRepository).saveCheckpoint(eq(1L), any(), any(ImportBatch.class));
+        assertTrue(importJobControl.isStopped(1L));
+        assertEquals(1, job.getSuccessfulCount());
+    }
+
+    @Test
+    void shouldNotStopImportThatReadItsWholeFile() throws IOException, CsvValidationException {
+        // Given - the request arrives while the last batch is written
+        ImportJob job = ImportJob.builder().id(1L).build();
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(createValidTedTalkRecord()), List.of());
+        when(csvReader.getPosition()).thenReturn(-1L);
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any())).thenReturn(Optional.empty());
+        when(tedTalkRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            importJobControl.requestStop(1L, ImportJob.Status.PAUSED);
+            return invocation.getArgument(0);
+        });
 
         // When
         csvProcessingService.processImportJob(job, csvReader);
 
         // Then
-        verify(importJobRepository, times(3)).save(job);
+        assertFalse(importJobControl.isStopped(1L));
+        assertEquals(1, job.getSuccessfulCount());
     }
 
     @Test
@@ -158,7 +299,25 @@ class CsvProcessingServiceTest {
         csvProcessingService.processImportJob(job, csvReader);
 
         // Then
-        verify(csvReader).skip(100);
+        verify(csvReader).skip(99);
+    }
+
+    @Test
+    void shouldResumeFromLastProcessedOffset() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = new ImportJob();
+        job.setLastProcessedLine(100);
+        job.setLastProcessedOffset(4096L);
+
+        when(csvReader.getPosition()).thenReturn(0L);
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of());
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then
+        verify(csvReader).seek(4096L, 100);
+        verify(csvReader, never()).skip(anyInt());
     }
 
     @Test
@@ -169,11 +328,6 @@ class CsvProcessingServiceTest {
         TedTalkRecord invalidRecord = createInvalidTedTalkRecord();
         List<TedTalkRecord> batch = List.of(validRecord, invalidRecord);
 
-        // Mock validation: first record valid, second invalid
-        when(validator.validate(any(TedTalk.class)))
-                .thenReturn(Set.of()) // Valid
-                .thenReturn(Set.of(mock(ConstraintViolation.class))); // Invalid
-
         when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
                 .thenReturn(Optional.empty());
 
@@ -181,16 +335,203 @@ class CsvProcessingServiceTest {
         csvProcessingService.processBatch(job, batch);
 
         // Then
-        verify(tedTalkRepository, times(1)).save(any(TedTalk.class));
+        verify(tedTalkRepository, times(1)).saveAll(List.of(TedTalkMapper.mapToTedTalk(validRecord)));
+        assertEquals(1, job.getSuccessfulCount());
+        assertEquals(1, job.getFailedCount());
+    }
+
+    @Test
+    void shouldOnlyRunBeanValidationToDescribeRejectedRecords() {
+        // Given
+        ImportJob job = new ImportJob();
+        TedTalkRecord validRecord = createValidTedTalkRecord();
+        TedTalkRecord negativeViews = createValidTedTalkRecord();
+        negativeViews.setTitle("Other Talk");
+        negativeViews.setViews(-1);
+
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        // When
+        csvProcessingService.processBatch(job, List.of(validRecord, negativeViews));
+
+        // Then
+        verify(validator).validate(negativeViews);
+        verifyNoMoreInteractions(validator);
         assertEquals(1, job.getSuccessfulCount());
         assertEquals(1, job.getFailedCount());
     }
 
+    @Test
+    void shouldDropDuplicatesWithinBatch() {
+        // Given
+        ImportJob job = new ImportJob();
+        TedTalkRecord record = createValidTedTalkRecord();
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        // When
+        csvProcessingService.processBatch(job, List.of(record, createValidTedTalkRecord()));
+
+        // Then
+        verify(tedTalkRepository).saveAll(List.of(TedTalkMapper.mapToTedTalk(record)));
+        assertEquals(1, job.getSuccessfulCount());
+        assertEquals(1, job.getSkippedCount());
+    }
+
+    @Test
+    void shouldCheckpointInFileOrderWithParallelStages() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = new ImportJob();
+        csvImportProperties.setBatchSize(1);
+        csvImportProperties.getPipeline().setValidateParallelism(3);
+        csvImportProperties.getPipeline().setDedupeParallelism(2);
+
+        List<List<TedTalkRecord>> batches = new ArrayList<>();
+        List<Long> recordsRead = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            batches.add(List.of(createValidTedTalkRecord()));
+            recordsRead.add(i + 1L);
+        }
+        when(csvReader.readBatch(1)).thenAnswer(invocation -> batches.isEmpty() ? List.of() : batches.removeFirst());
+        when(csvReader.getRecordsRead()).thenAnswer(invocation -> recordsRead.removeFirst());
+        when(csvReader.getPosition()).thenReturn(-1L);
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(any(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then
+        assertEquals(20, job.getSuccessfulCount());
+        assertEquals(21, job.getLastProcessedLine());
+        verify(importJobRepository, times(20)).saveCheckpoint(any(), any(), any(ImportBatch.class));
+        assertEquals(20, meterRegistry.get("tedtalks.import.pipeline.records").tag("stage", "validate").counter().count());
+        assertEquals(20, meterRegistry.get("tedtalks.import.pipeline.records").tag("stage", "write").counter().count());
+        assertEquals(0, meterRegistry.get("tedtalks.import.pipeline.queue.size").tag("stage", "dedupe").gauge().value());
+    }
+
+    @Test
+    void shouldOnlyLookUpTalksTheKeyFilterMightContain() throws IOException, CsvValidationException {
+        // Given - the filter knows the first talk, the second one is new
+        ImportJob job = new ImportJob();
+        csvImportProperties.setSkipUnchanged(true);
+        TedTalkRecord known = createValidTedTalkRecord();
+        TedTalkRecord unseen = createValidTedTalkRecord();
+        unseen.setTitle("Unseen Talk");
+        ImportKeyFilter keyFilter = ImportKeyFilter.sized(1000, 0.001, Long.MAX_VALUE);
+        keyFilter.put(known.getTitle(), known.getSpeaker(), known.getDate());
+        when(keyFilterFactory.create(job)).thenReturn(keyFilter);
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(known, unseen), List.of());
+        when(csvReader.getPosition()).thenReturn(-1L);
+        when(tedTalkRepository.findByFingerprintIn(List.of(TedTalkFingerprint.of(TedTalkMapper.mapToTedTalk(known)))))
+                .thenReturn(List.of());
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(known.getTitle(), known.getSpeaker(), known.getDate()))
+                .thenReturn(Optional.of(new TedTalk()));
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then - each talk counted once, in the delta stage, though the writer tests it again
+        verify(tedTalkRepository, never()).findByTitleAndSpeakerAndDate(eq("Unseen Talk"), any(), any());
+        verify(tedTalkRepository).saveAll(List.of(TedTalkMapper.mapToTedTalk(unseen)));
+        verify(keyFilterFactory).release(job, keyFilter);
+        assertEquals(1, keyFilter.getHits());
+        assertEquals(1, keyFilter.getMisses());
+        assertEquals(1, job.getSuccessfulCount());
+        assertEquals(1, job.getSkippedCount());
+    }
+
+    @Test
+    void shouldWriteBatchAgainWithEveryTalkLookedUpWhenKeyFilterMissedStoredTalk()
+            throws IOException, CsvValidationException {
+        // Given - another import stored the talk after the filter was seeded
+        ImportJob job = new ImportJob();
+        TedTalkRecord record = createValidTedTalkRecord();
+        when(keyFilterFactory.create(job)).thenReturn(ImportKeyFilter.sized(1000, 0.001, Long.MAX_VALUE));
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(record), List.of());
+        when(csvReader.getPosition()).thenReturn(-1L);
+        doThrow(new DataIntegrityViolationException("unique_ted_talk")).when(tedTalkRepository).saveAll(anyList());
+        when(tedTalkRepository.findByTitleAndSpeakerAndDate(record.getTitle(), record.getSpeaker(), record.getDate()))
+                .thenReturn(Optional.of(new TedTalk()));
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then - the second write looked the talk up and skipped it, counted once
+        verify(tedTalkRepository).saveAll(anyList());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(importJobRepository).saveCheckpoint(any(), any(), any(ImportBatch.class));
+        assertEquals(0, job.getSuccessfulCount());
+        assertEquals(1, job.getSkippedCount());
+    }
+
+    @Test
+    void shouldSaveRejectedRowsOfBatchAtCheckpoint() throws IOException, CsvValidationException {
+        // Given
+        ImportJob job = ImportJob.builder().id(7L).build();
+        TedTalkRecord unparseable = TedTalkRecord.unparseable(2, "Talk,Speaker,May 2020,abc,1,link", "Invalid views");
+        TedTalkRecord future = createValidTedTalkRecord();
+        future.setLineNumber(3);
+        future.setDate(LocalDate.now().plusYears(1));
+
+        when(csvReader.readBatch(anyInt())).thenReturn(List.of(unparseable, future), List.of());
+        when(csvReader.getRecordsRead()).thenReturn(3L);
+        when(csvReader.getPosition()).thenReturn(-1L);
+
+        // When
+        csvProcessingService.processImportJob(job, csvReader);
+
+        // Then
+        verify(importErrorRepository).saveAll(7L, List.of(
+                new ImportError(2, "Talk,Speaker,May 2020,abc,1,link", "Invalid views"),
+                new ImportError(3, "Test Talk,Test Speaker," + DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH)
+                        .format(future.getDate()) + ",0,0,https://www.ted.com/talks/test_talk", "Validation failed")));
+        assertEquals(2, job.getFailedCount());
+    }
+
+    @Test
+    void shouldNotWriteTalksStoredWithSameFingerprint() {
+        // Given - the first record is stored as is, the second one with other views
+        ImportJob job = new ImportJob();
+        csvImportProperties.setSkipUnchanged(true);
+        TedTalkRecord stored = createValidTedTalkRecord();
+        TedTalkRecord changed = createValidTedTalkRecord();
+        changed.setTitle("Changed Talk");
+        TedTalk storedTalk = TedTalkMapper.mapToTedTalk(stored);
+        TedTalk changedTalk = TedTalkMapper.mapToTedTalk(changed);
+        changedTalk.setViews(1L);
+
+        List<StoredFingerprint> storedRows = List.of(storedFingerprint(storedTalk), storedFingerprint(changedTalk));
+        when(tedTalkRepository.findByFingerprintIn(any())).thenReturn(storedRows);
+
+        // When
+        csvProcessingService.processBatch(job, List.of(stored, changed));
+
+        // Then
+        verify(tedTalkRepository).saveAll(List.of(TedTalkMapper.mapToTedTalk(changed)));
+        assertEquals(1, job.getUnchangedCount());
+        assertEquals(1, job.getSuccessfulCount());
+        assertEquals(2, job.getProcessedCount());
+    }
+
+    private static StoredFingerprint storedFingerprint(TedTalk talk) {
+        long fingerprint = TedTalkFingerprint.of(talk);
+        StoredFingerprint row = mock(StoredFingerprint.class);
+        when(row.getTitle()).thenReturn(talk.getTitle());
+        when(row.getSpeaker()).thenReturn(talk.getSpeaker());
+        when(row.getDate()).thenReturn(talk.getDate());
+        when(row.getFingerprint()).thenReturn(fingerprint);
+        return row;
+    }
+
     private TedTalkRecord createValidTedTalkRecord() {
         return TedTalkRecord.builder()
                 .title("Test Talk")
                 .speaker("Test Speaker")
                 .date(LocalDate.now())
+                .link("https://www.ted.com/talks/test_talk")
                 .build();
     }
 
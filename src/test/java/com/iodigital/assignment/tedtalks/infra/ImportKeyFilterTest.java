@@ -0,0 +1,112 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportKeyFilter;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportKeyFilterTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 5, 1);
+
+    @Test
+    void shouldContainEveryKeyThatWasPut() {
+        // Given
+        ImportKeyFilter filter = ImportKeyFilter.sized(10_000, 0.01, Long.MAX_VALUE);
+        List<TedTalk> talks = talks(0, 10_000);
+
+        // When
+        filter.putAll(talks);
+
+        // Then
+        assertTrue(talks.stream().allMatch(filter::mightContain));
+        assertEquals(10_000, filter.getHits());
+        assertEquals(0, filter.getMisses());
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        // Given
+        ImportKeyFilter filter = ImportKeyFilter.sized(10_000, 0.01, Long.MAX_VALUE);
+        filter.putAll(talks(0, 10_000));
+
+        // When
+        long falsePositives = talks(10_000, 20_000).stream().filter(filter::mightContain).count();
+
+        // Then
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+        assertEquals(10_000 - falsePositives, filter.getMisses());
+    }
+
+    @Test
+    void shouldNotUseMoreBitsThanAllowed() {
+        // When
+        ImportKeyFilter filter = ImportKeyFilter.sized(1_000_000, 0.01, 8 * 1024 * 8);
+
+        // Then
+        assertEquals(8 * 1024 * 8, filter.getBitCount());
+        assertTrue(filter.getHashCount() >= 1);
+    }
+
+    @Test
+    void shouldTellKeysApartByEachField() {
+        // Given
+        ImportKeyFilter filter = ImportKeyFilter.sized(100, 0.001, Long.MAX_VALUE);
+        filter.put("Talk", "Speaker", DATE);
+
+        // Then
+        assertTrue(filter.mightContain(talk("Talk", "Speaker", DATE)));
+        assertFalse(filter.mightContain(talk("Talk", "Speaker", DATE.plusMonths(1))));
+        assertFalse(filter.mightContain(talk("TalkSpeaker", "", DATE)));
+    }
+
+    @Test
+    void shouldNotCountRechecks() {
+        // Given
+        ImportKeyFilter filter = ImportKeyFilter.sized(100, 0.001, Long.MAX_VALUE);
+        filter.put("Talk", "Speaker", DATE);
+
+        // When
+        boolean known = filter.recheck(talk("Talk", "Speaker", DATE));
+        boolean unseen = filter.recheck(talk("Other", "Speaker", DATE));
+
+        // Then
+        assertTrue(known);
+        assertFalse(unseen);
+        assertEquals(0, filter.getHits());
+        assertEquals(0, filter.getMisses());
+    }
+
+    @Test
+    void shouldContainEverythingWithoutFilter() {
+        // Given
+        ImportKeyFilter filter = ImportKeyFilter.none();
+        filter.put("Talk", "Speaker", DATE);
+
+        // Then
+        assertFalse(filter.isEnabled());
+        assertTrue(filter.mightContain(talk("Other", "Speaker", DATE)));
+        assertEquals(0, filter.getHits());
+    }
+
+    private static List<TedTalk> talks(int from, int to) {
+        List<TedTalk> talks = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            talks.add(talk("Talk " + i, "Speaker " + i, DATE));
+        }
+        return talks;
+    }
+
+    private static TedTalk talk(String title, String speaker, LocalDate date) {
+        TedTalk talk = new TedTalk();
+        talk.setTitle(title);
+        talk.setSpeaker(speaker);
+        talk.setDate(date);
+        return talk;
+    }
+}
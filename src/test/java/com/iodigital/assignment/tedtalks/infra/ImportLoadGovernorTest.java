@@ -0,0 +1,134 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.pipeline.ImportLoadGovernor;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportLoadGovernorTest {
+
+    private static final long SLOW_REQUEST = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long FAST_REQUEST = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private CsvImportProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ImportLoadGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CsvImportProperties();
+        CsvImportProperties.Governor settings = properties.getGovernor();
+        settings.setEnabled(true);
+        settings.setApiLatencyBudget(Duration.ofMillis(200));
+        settings.setPoolWaitBudget(Duration.ofMillis(20));
+        settings.setMinRowsPerSecond(500);
+        settings.setMaxRowsPerSecond(50_000);
+        meterRegistry = new SimpleMeterRegistry();
+        governor = new ImportLoadGovernor(properties, meterRegistry);
+    }
+
+    @Test
+    void shouldLimitToMinRateWhenApiIsSlowWhileImporting() throws InterruptedException {
+        // Given - one row in at least 10ms is at most 100 rows/s
+        Thread.sleep(10);
+        governor.acquire(1);
+        governor.apiRequestCompleted(SLOW_REQUEST);
+
+        // When
+        governor.adjust();
+
+        // Then
+        assertEquals(500, governor.getRowsPerSecond());
+        assertEquals(500, meterRegistry.get("tedtalks.import.governor.rows.per.second").gauge().value());
+    }
+
+    @Test
+    void shouldNotLimitWhenApiIsSlowWithoutImports() {
+        // Given
+        governor.apiRequestCompleted(SLOW_REQUEST);
+
+        // When
+        governor.adjust();
+
+        // Then
+        assertTrue(Double.isInfinite(governor.getRowsPerSecond()));
+    }
+
+    @Test
+    void shouldLimitWhenPoolWaitIsOverBudget() {
+        // Given
+        Timer acquire = meterRegistry.timer("hikaricp.connections.acquire", "pool", "HikariPool-1");
+        acquire.record(50, TimeUnit.MILLISECONDS);
+        governor.acquire(1000);
+        governor.apiRequestCompleted(FAST_REQUEST);
+
+        // When
+        governor.adjust();
+
+        // Then
+        assertTrue(governor.getRowsPerSecond() >= 500);
+        assertFalse(Double.isInfinite(governor.getRowsPerSecond()));
+    }
+
+    @Test
+    void shouldDoubleLimitUntilLiftedWhileApiIsWithinBudget() throws InterruptedException {
+        // Given
+        Thread.sleep(10);
+        governor.acquire(1);
+        governor.apiRequestCompleted(SLOW_REQUEST);
+        governor.adjust();
+
+        // When / Then
+        governor.apiRequestCompleted(FAST_REQUEST);
+        governor.adjust();
+        assertEquals(1000, governor.getRowsPerSecond());
+        for (int i = 0; i < 5; i++) {
+            governor.adjust();
+        }
+        assertEquals(32_000, governor.getRowsPerSecond());
+        governor.adjust();
+        assertTrue(Double.isInfinite(governor.getRowsPerSecond()));
+        assertEquals(0, meterRegistry.get("tedtalks.import.governor.rows.per.second").gauge().value());
+    }
+
+    @Test
+    void shouldMakeBatchWaitUntilItsRowsAreAvailable() throws InterruptedException {
+        // Given - limited to 500 rows/s with an empty bucket
+        Thread.sleep(10);
+        governor.acquire(1);
+        governor.apiRequestCompleted(SLOW_REQUEST);
+        governor.adjust();
+
+        // When
+        governor.acquire(50);
+
+        // Then - 50 rows at 500 rows/s take 100ms
+        Timer wait = meterRegistry.get("tedtalks.import.governor.wait").timer();
+        assertEquals(1, wait.count());
+        assertTrue(wait.totalTime(TimeUnit.MILLISECONDS) > 90);
+    }
+
+    @Test
+    void shouldNeitherLimitNorWaitWhenDisabled() throws InterruptedException {
+        // Given
+        properties.getGovernor().setEnabled(false);
+        Thread.sleep(10);
+        governor.acquire(1);
+        governor.apiRequestCompleted(SLOW_REQUEST);
+
+        // When
+        governor.adjust();
+        governor.acquire(50);
+
+        // Then
+        assertTrue(Double.isInfinite(governor.getRowsPerSecond()));
+        assertEquals(0, meterRegistry.get("tedtalks.import.governor.wait").timer().count());
+    }
+}
@@ -0,0 +1,115 @@
+package com.iodigital.assignment.tedtalks.infra;
+
+import com.iodigital.assignment.tedtalks.common.config.CsvImportProperties;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob.Status;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgress;
+import com.iodigital.assignment.tedtalks.importcsv.progress.ImportProgressRegistry;
+import com.iodigital.assignment.tedtalks.talk.dto.ImportJobProgressDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportProgressRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImportProgressRegistry registry;
+    private ImportJob job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new ImportProgressRegistry(new CsvImportProperties());
+        Path file = Files.write(tempDir.resolve("talks.csv"), new byte[1000]);
+        job = ImportJob.builder()
+                .id(1L)
+                .fileName("talks.csv")
+                .filePath(file.toString())
+                .status(Status.IN_PROGRESS)
+                .build();
+    }
+
+    @Test
+    void shouldReportCommittedBatchesWithRateAndEstimate() throws InterruptedException {
+        // Given
+        ImportProgress progress = registry.start(job);
+
+        // When
+        progress.processAndSucceed(30);
+        progress.processAndSkipped(5);
+        progress.processAndFailed(5);
+        progress.advanceTo(250);
+        Thread.sleep(20);
+
+        // Then
+        ImportJobProgressDTO snapshot = registry.find(1L).orElseThrow();
+        assertEquals(Status.IN_PROGRESS, snapshot.getStatus());
+        assertEquals(40, snapshot.getProcessedCount());
+        assertEquals(30, snapshot.getSuccessfulCount());
+        assertEquals(5, snapshot.getSkippedCount());
+        assertEquals(5, snapshot.getFailedCount());
+        assertTrue(snapshot.getRowsPerSecond() > 0);
+        assertTrue(snapshot.getEtaSeconds() > 0);
+    }
+
+    @Test
+    void shouldNotEstimateWhenReaderDoesNotTrackPosition() {
+        // Given
+        ImportProgress progress = registry.start(job);
+
+        // When
+        progress.processAndSucceed(10);
+
+        // Then
+        assertNull(registry.find(1L).orElseThrow().getEtaSeconds());
+    }
+
+    @Test
+    void shouldContinueFromCountersOfResumedJob() {
+        // Given
+        job.setProcessedCount(100);
+        job.setSuccessfulCount(90);
+        job.setFailedCount(10);
+        job.setLastProcessedOffset(400L);
+        ImportProgress progress = registry.start(job);
+
+        // When
+        progress.processAndSucceed(10);
+
+        // Then
+        ImportJobProgressDTO snapshot = registry.find(1L).orElseThrow();
+        assertEquals(110, snapshot.getProcessedCount());
+        assertEquals(100, snapshot.getSuccessfulCount());
+        assertEquals(10, snapshot.getFailedCount());
+        assertNull(snapshot.getEtaSeconds()); // nothing read since the checkpoint yet
+    }
+
+    @Test
+    void shouldOnlyAnswerWhileJobIsRunning() {
+        // Given
+        registry.start(job);
+
+        // When
+        job.setStatus(Status.COMPLETED);
+        registry.finish(job);
+
+        // Then
+        assertTrue(registry.find(1L).isEmpty());
+    }
+
+    @Test
+    void shouldHandOutUntrackedProgressForJobNotStartedThroughRegistry() {
+        // When
+        registry.progressOf(job).processAndSucceed(10);
+
+        // Then
+        assertTrue(registry.find(1L).isEmpty());
+    }
+}
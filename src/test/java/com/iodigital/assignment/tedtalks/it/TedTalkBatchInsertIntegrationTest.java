@@ -0,0 +1,105 @@
+package com.iodigital.assignment.tedtalks.it;
+
+import com.iodigital.assignment.tedtalks.TestcontainersConfiguration;
+import com.iodigital.assignment.tedtalks.importcsv.writer.BatchWriteResult;
+import com.iodigital.assignment.tedtalks.importcsv.writer.JpaTedTalkBatchWriter;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "tedtalks.csv.import.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@ContextConfiguration(initializers = {TestcontainersConfiguration.Initializer.class})
+class TedTalkBatchInsertIntegrationTest {
+
+    private static final int TALK_COUNT = 100;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TedTalkRepository tedTalkRepository;
+
+    @Autowired
+    private JpaTedTalkBatchWriter jpaTedTalkBatchWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        tedTalkRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAll_ShouldGroupInsertsIntoJdbcBatches() {
+        // Given
+        List<TedTalk> talks = createTalks();
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> tedTalkRepository.saveAll(talks));
+
+        // Then - 2 sequence calls for the pooled ids and 2 insert batches of 50, instead of 100 inserts
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(TALK_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+        assertThat(tedTalkRepository.count()).isEqualTo(TALK_COUNT);
+    }
+
+    @Test
+    void jpaBatchWriter_ShouldGroupInsertsIntoJdbcBatches() {
+        // Given
+        List<TedTalk> talks = createTalks();
+
+        // When
+        BatchWriteResult result = jpaTedTalkBatchWriter.write(talks);
+
+        // Then - one duplicate lookup per talk, but the inserts themselves are batched
+        assertThat(result.succeeded()).isEqualTo(TALK_COUNT);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(TALK_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(TALK_COUNT + 4);
+        assertThat(tedTalkRepository.count()).isEqualTo(TALK_COUNT);
+    }
+
+    private List<TedTalk> createTalks() {
+        List<TedTalk> talks = new ArrayList<>();
+        for (int i = 1; i <= TALK_COUNT; i++) {
+            talks.add(TedTalk.builder()
+                    .title("Batched Talk " + i)
+                    .speaker("Batch Speaker " + i)
+                    .date(LocalDate.of(2020, 5, 1))
+                    .views(i * 1000L)
+                    .likes(i * 10L)
+                    .link("https://www.ted.com/talks/batched-" + i)
+                    .build());
+        }
+        return talks;
+    }
+}
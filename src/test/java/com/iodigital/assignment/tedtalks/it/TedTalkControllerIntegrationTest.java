@@ -3,6 +3,8 @@ package com.iodigital.assignment.tedtalks.it;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iodigital.assignment.tedtalks.TedtalksApplication;
 import com.iodigital.assignment.tedtalks.TestcontainersConfiguration;
+import com.iodigital.assignment.tedtalks.importcsv.model.ImportJob;
+import com.iodigital.assignment.tedtalks.importcsv.repository.ImportJobRepository;
 import com.iodigital.assignment.tedtalks.talk.dto.TedTalkDTO;
 import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
 import com.iodigital.assignment.tedtalks.talk.repository.TedTalkRepository;
@@ -21,11 +23,17 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -55,6 +63,9 @@ class TedTalkControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
     private List<TedTalk> sampleTedTalks;
 
     @BeforeEach
@@ -207,6 +218,7 @@ class TedTalkControllerIntegrationTest {
     }
 
     @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the import only starts once the upload has committed
     void importTedTalks_WithValidFile_ShouldImportDataAndReturnOk() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -224,9 +236,62 @@ class TedTalkControllerIntegrationTest {
                         .file(file))
                 .andExpect(status().isOk());
 
-        // Verify the data was imported
-        assertTrue(tedTalkRepository.findByTitle("Imported Talk 1").isPresent());
-        assertTrue(tedTalkRepository.findByTitle("Imported Talk 2").isPresent());
+        // Verify the data was imported in the background
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> {
+                    assertTrue(tedTalkRepository.findByTitle("Imported Talk 1").isPresent());
+                    assertTrue(tedTalkRepository.findByTitle("Imported Talk 2").isPresent());
+                });
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the import only starts once the upload has committed
+    void importTedTalksStream_WithCsvBody_ShouldImportDataAndReturnOk() throws Exception {
+        String csv = """
+                title,author,date,views,likes,link
+                Streamed Talk 1,Stream Speaker 1,June 2023,20000,1000,https://test.com/stream1
+                Streamed Talk 2,Stream Speaker 2,June 2023,30000,1500,https://test.com/stream2
+                """;
+
+        mockMvc.perform(post("/api/v1/tedtalks/import")
+                        .param("fileName", "test-stream.csv")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId").isNumber());
+
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> {
+                    assertTrue(tedTalkRepository.findByTitle("Streamed Talk 1").isPresent());
+                    assertTrue(tedTalkRepository.findByTitle("Streamed Talk 2").isPresent());
+                });
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the import only starts once the upload has committed
+    void importTedTalks_WithGzipFile_ShouldImportDataAndReturnOk() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("""
+                    title,author,date,views,likes,link
+                    Gzipped Talk 1,Gzip Speaker 1,July 2023,20000,1000,https://test.com/gzip1
+                    Gzipped Talk 2,Gzip Speaker 2,July 2023,30000,1500,https://test.com/gzip2
+                    """.getBytes(StandardCharsets.UTF_8));
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "test-import.csv.gz", "application/gzip", compressed.toByteArray());
+
+        mockMvc.perform(multipart("/api/v1/tedtalks/import")
+                        .file(file))
+                .andExpect(status().isOk());
+
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> {
+                    assertTrue(tedTalkRepository.findByTitle("Gzipped Talk 1").isPresent());
+                    assertTrue(tedTalkRepository.findByTitle("Gzipped Talk 2").isPresent());
+                });
     }
 
     @Test
@@ -243,4 +308,115 @@ class TedTalkControllerIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
-}
\ No newline at end of file
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the import only starts once the upload has committed
+    void getImportProgress_AfterImport_ShouldReturnCountersAndStreamFinalEvent() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "progress-import.csv", "text/csv", """
+                title,author,date,views,likes,link
+                Progress Talk 1,Progress Speaker 1,August 2023,20000,1000,https://test.com/progress1
+                Progress Talk 2,Progress Speaker 2,August 2023,30000,1500,https://test.com/progress2
+                Progress Talk 2,Progress Speaker 2,August 2023,30000,1500,https://test.com/progress2
+                """.getBytes(StandardCharsets.UTF_8));
+        String response = mockMvc.perform(multipart("/api/v1/tedtalks/import").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long jobId = objectMapper.readTree(response).get("jobId").asLong();
+
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> mockMvc.perform(get("/api/v1/tedtalks/import/{jobId}", jobId))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.status").value("COMPLETED"))
+                        .andExpect(jsonPath("$.processedCount").value(3))
+                        .andExpect(jsonPath("$.successfulCount").value(2))
+                        .andExpect(jsonPath("$.skippedCount").value(1))
+                        .andExpect(jsonPath("$.failedCount").value(0)));
+
+        // The job has ended, so the stream sends its counters once and closes
+        MvcResult events = mockMvc.perform(get("/api/v1/tedtalks/import/{jobId}/events", jobId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(events))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:progress")))
+                .andExpect(content().string(containsString("\"status\":\"COMPLETED\"")));
+    }
+
+    @Test
+    void getImportProgress_WhenJobNotExists_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/tedtalks/import/999999"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/tedtalks/import/999999/events"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/tedtalks/import/999999/errors"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/tedtalks/import/999999/pause"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void pauseAndResumeImport_WhenJobIsQueued_ShouldChangeStatusAndPriority() throws Exception {
+        ImportJob job = importJobRepository.save(importJob("queued.csv", ImportJob.Status.PENDING));
+
+        mockMvc.perform(post("/api/v1/tedtalks/import/{jobId}/pause", job.getId()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PAUSED"));
+        mockMvc.perform(post("/api/v1/tedtalks/import/{jobId}/resume", job.getId()).param("priority", "10"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        assertEquals(10, importJobRepository.findById(job.getId()).orElseThrow().getPriority());
+    }
+
+    @Test
+    void cancelImport_WhenJobHasEnded_ShouldReturnConflict() throws Exception {
+        ImportJob job = importJobRepository.save(importJob("done.csv", ImportJob.Status.COMPLETED));
+
+        mockMvc.perform(post("/api/v1/tedtalks/import/{jobId}/cancel", job.getId()))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/v1/tedtalks/import/{jobId}/resume", job.getId()))
+                .andExpect(status().isConflict());
+    }
+
+    private static ImportJob importJob(String fileName, ImportJob.Status status) {
+        return ImportJob.builder()
+                .fileName(fileName)
+                .fileHash(fileName)
+                .filePath("/uploads/" + fileName)
+                .status(status)
+                .build();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the import only starts once the upload has committed
+    void downloadImportErrors_AfterImport_ShouldReturnRejectedRowsAsCsv() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "rejected-import.csv", "text/csv", """
+                title,author,date,views,likes,link
+                Rejected Talk 1,Rejected Speaker 1,Someday,20000,1000,https://test.com/rejected1
+                Accepted Talk,Accepted Speaker,August 2023,30000,1500,https://test.com/accepted
+                "Rejected, Talk 2",Rejected Speaker 2,August 2023,lots,1500,https://test.com/rejected2
+                """.getBytes(StandardCharsets.UTF_8));
+        String response = mockMvc.perform(multipart("/api/v1/tedtalks/import").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long jobId = objectMapper.readTree(response).get("jobId").asLong();
+        Awaitility.await()
+                .atMost(Duration.ofSeconds(10))
+                .untilAsserted(() -> mockMvc.perform(get("/api/v1/tedtalks/import/{jobId}", jobId))
+                        .andExpect(jsonPath("$.status").value("COMPLETED")));
+
+        MvcResult report = mockMvc.perform(get("/api/v1/tedtalks/import/{jobId}/errors", jobId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(report))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("import-" + jobId + "-errors.csv")))
+                .andExpect(content().string("""
+                        line_number,reason,raw_row
+                        2,Failed to parse row data: Invalid date format: Someday. Expected format: 'MMMM yyyy',\
+                        "Rejected Talk 1,Rejected Speaker 1,Someday,20000,1000,https://test.com/rejected1"
+                        4,Failed to parse row data: Invalid number format for field 'views,\
+                        \"""Rejected, Talk 2"",Rejected Speaker 2,August 2023,lots,1500,https://test.com/rejected2"
+                        """));
+    }
+}
@@ -0,0 +1,106 @@
+package com.iodigital.assignment.tedtalks.processor;
+
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvChunkSplitter;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvChunkSplitter.ByteRange;
+import com.iodigital.assignment.tedtalks.importcsv.reader.CsvChunkSplitter.ChunkPlan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvChunkSplitterTest {
+
+    private static final String HEADER = "title,author,date,views,likes,link\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void split_ShouldStartEveryChunkAtARecord() throws IOException {
+        // Arrange
+        String content = HEADER
+                + "Talk 1,Speaker 1,May 2020,1,1,link1\n"
+                + "Talk 2,Speaker 2,May 2020,2,2,link2\n"
+                + "Talk 3,Speaker 3,May 2020,3,3,link3\n";
+        Path file = write(content);
+
+        // Act
+        ChunkPlan plan = CsvChunkSplitter.split(file, 1);
+
+        // Assert
+        assertEquals(HEADER.length(), plan.headerLength());
+        assertEquals(List.of("Talk 1,Speaker 1,May 2020,1,1,link1\n",
+                "Talk 2,Speaker 2,May 2020,2,2,link2\n",
+                "Talk 3,Speaker 3,May 2020,3,3,link3\n"), slices(content, plan));
+    }
+
+    @Test
+    void split_ShouldNotSplitInsideQuotedField() throws IOException {
+        // Arrange
+        String quoted = "\"Talk 1\nwith \"\"quotes\"\"\n\",Speaker 1,May 2020,1,1,link1\n";
+        String content = HEADER + quoted + "Talk 2,Speaker 2,May 2020,2,2,link2";
+        Path file = write(content);
+
+        // Act
+        ChunkPlan plan = CsvChunkSplitter.split(file, 1);
+
+        // Assert
+        assertEquals(List.of(quoted, "Talk 2,Speaker 2,May 2020,2,2,link2"), slices(content, plan));
+    }
+
+    @Test
+    void split_ShouldCountRecordsBeforeEveryChunk() throws IOException {
+        // Arrange - a quoted line break and a blank line are not records
+        String content = HEADER
+                + "\"Talk 1\nwith a line break\",Speaker 1,May 2020,1,1,link1\n"
+                + "\r\n"
+                + "Talk 2,Speaker 2,May 2020,2,2,link2\n"
+                + "Talk 3,Speaker 3,May 2020,3,3,link3\n";
+        Path file = write(content);
+
+        // Act
+        ChunkPlan plan = CsvChunkSplitter.split(file, 1);
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 2L, 3L), plan.ranges().stream().map(ByteRange::recordsBefore).toList());
+    }
+
+    @Test
+    void split_WithLargeChunkSize_ShouldReturnSingleChunk() throws IOException {
+        // Arrange
+        String content = HEADER + "Talk 1,Speaker 1,May 2020,1,1,link1\nTalk 2,Speaker 2,May 2020,2,2,link2\n";
+        Path file = write(content);
+
+        // Act
+        ChunkPlan plan = CsvChunkSplitter.split(file, 1024);
+
+        // Assert
+        assertEquals(List.of(new ByteRange(HEADER.length(), content.length(), 1)), plan.ranges());
+    }
+
+    @Test
+    void split_WithHeaderOnly_ShouldReturnNoChunks() throws IOException {
+        // Act
+        ChunkPlan plan = CsvChunkSplitter.split(write(HEADER), 1);
+
+        // Assert
+        assertEquals(HEADER.length(), plan.headerLength());
+        assertTrue(plan.ranges().isEmpty());
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(tempDir.resolve("talks.csv"), content, StandardCharsets.UTF_8);
+    }
+
+    private List<String> slices(String content, ChunkPlan plan) {
+        return plan.ranges().stream()
+                .map(range -> content.substring((int) range.start(), (int) range.end()))
+                .toList();
+    }
+}
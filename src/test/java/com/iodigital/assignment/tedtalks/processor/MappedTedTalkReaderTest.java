@@ -0,0 +1,155 @@
+package com.iodigital.assignment.tedtalks.processor;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.reader.MappedTedTalkReader;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkCSVReader;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTedTalkReaderTest {
+
+    private static final String EDGE_CASES = """
+            Title, Author ,date,views,likes,link,extra\r
+            "Quoted, with comma","Speaker ""Nick"" Name",May 2020,"1,000",10,https://ted.com/1,x\r
+            "Multi\r
+            line\rtitle",Speaker 2,June 2021,2000,20,https://ted.com/2
+            Missing columns,Speaker 3
+            
+            Bad number,Speaker 4,May 2020,abc,40,https://ted.com/4
+            Negative,Speaker 5,May 2020,-5,50,https://ted.com/5
+            Bad date,Speaker 6,2020-05,60,60,https://ted.com/6
+            Ünïcödé ✓,Speaker 7,July 2022,70,70,https://ted.com/7,trailing,
+            Last line,Speaker 8,August 2023,80,80,https://ted.com/8""";
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/data/iO_Data.csv", "/data/test.csv", "/data/test-1.csv"})
+    void readBatch_ShouldMatchOpenCsvReader(String resource) throws Exception {
+        Path file = Path.of(getClass().getResource(resource).toURI());
+
+        assertEquals(readAll(openCsv(file)), readAll(new MappedTedTalkReader(file)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {MappedTedTalkReader.DEFAULT_WINDOW_SIZE, 128, 151})
+    void readBatch_WithEdgeCases_ShouldMatchOpenCsvReader(long windowSize) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("edge.csv"), EDGE_CASES, StandardCharsets.UTF_8);
+
+        List<TedTalkRecord> expected = readAll(openCsv(file));
+        List<TedTalkRecord> actual = readAll(new MappedTedTalkReader(file, -1, -1, windowSize));
+
+        assertEquals(expected, actual);
+        assertEquals("Multi\nline\ntitle", actual.get(1).getTitle());
+        assertEquals("Speaker \"Nick\" Name", actual.get(0).getSpeaker());
+        assertEquals(1000, actual.get(0).getViews());
+    }
+
+    @Test
+    void skip_ShouldSkipRecordsAndCountThem() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("edge.csv"), EDGE_CASES, StandardCharsets.UTF_8);
+
+        try (TedTalkReader reader = new MappedTedTalkReader(file)) {
+            reader.skip(2);
+            assertEquals(3, reader.getRecordsRead());
+            assertTrue(reader.readNextTedTalk().isEmpty()); // Missing columns
+        }
+    }
+
+    @Test
+    void readNextTedTalk_WithUnparseableRow_ShouldKeepRowAsRead() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("edge.csv"), EDGE_CASES, StandardCharsets.UTF_8);
+
+        try (TedTalkReader reader = new MappedTedTalkReader(file)) {
+            reader.skip(3);
+            TedTalkRecord talkRecord = reader.readNextTedTalk();
+
+            assertTrue(talkRecord.isEmpty());
+            assertEquals(5, talkRecord.getLineNumber()); // the blank line is not counted
+            assertEquals("Bad number,Speaker 4,May 2020,abc,40,https://ted.com/4", talkRecord.getRawRow());
+            assertEquals("Failed to parse row data: Invalid number format for field 'views", talkRecord.getParseError());
+        }
+    }
+
+    @Test
+    void seek_ShouldContinueAtCheckpoint() throws Exception {
+        Path file = Path.of(getClass().getResource("/data/iO_Data.csv").toURI());
+        long checkpoint;
+        TedTalkRecord expected;
+        try (TedTalkReader reader = new MappedTedTalkReader(file)) {
+            reader.readBatch(1000);
+            checkpoint = reader.getPosition();
+            expected = reader.readNextTedTalk();
+        }
+
+        try (TedTalkReader reader = new MappedTedTalkReader(file)) {
+            reader.seek(checkpoint, 1001);
+            assertEquals(expected, reader.readNextTedTalk());
+            assertEquals(1002, reader.getRecordsRead());
+        }
+    }
+
+    @Test
+    void readNextTedTalk_WithByteRange_ShouldOnlyReadRecordsInRange() throws Exception {
+        String header = "title,author,date,views,likes,link\n";
+        String first = "Talk 1,Speaker 1,May 2020,1,1,link1\n";
+        String second = "Talk 2,Speaker 2,May 2020,2,2,link2\n";
+        Path file = Files.writeString(tempDir.resolve("range.csv"), header + first + second, StandardCharsets.UTF_8);
+
+        try (TedTalkReader reader = new MappedTedTalkReader(file, header.length() + first.length(),
+                header.length() + first.length() + second.length(), MappedTedTalkReader.DEFAULT_WINDOW_SIZE)) {
+            TedTalkRecord talk = reader.readNextTedTalk();
+            assertEquals("Talk 2", talk.getTitle());
+            assertEquals(LocalDate.of(2020, 5, 1), talk.getDate());
+            assertNull(reader.readNextTedTalk());
+        }
+    }
+
+    @Test
+    void constructor_WithMissingRequiredHeader_ShouldThrowException() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("headers.csv"), "title,speaker,date,views,link\n", StandardCharsets.UTF_8);
+
+        CsvValidationException exception = assertThrows(CsvValidationException.class, () -> new MappedTedTalkReader(file));
+        assertEquals("Missing required headers: author, likes", exception.getMessage());
+    }
+
+    @Test
+    void constructor_WithEmptyFile_ShouldThrowException() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("empty.csv"), "", StandardCharsets.UTF_8);
+
+        CsvValidationException exception = assertThrows(CsvValidationException.class, () -> new MappedTedTalkReader(file));
+        assertEquals("CSV file is empty - no headers found", exception.getMessage());
+    }
+
+    private TedTalkReader openCsv(Path file) throws IOException, CsvValidationException {
+        return new TedTalkCSVReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    private List<TedTalkRecord> readAll(TedTalkReader reader) throws IOException, CsvValidationException {
+        try (reader) {
+            List<TedTalkRecord> records = new ArrayList<>();
+            List<TedTalkRecord> batch;
+            while (!(batch = reader.readBatch(100)).isEmpty()) {
+                records.addAll(batch);
+            }
+            assertEquals(records.size() + 1, reader.getRecordsRead());
+            return records;
+        }
+    }
+}
@@ -118,6 +118,10 @@ class TedTalkCSVReaderTest {
         var tedTalkRecord = csvReader.readNextTedTalk();
         // Act & Assert
         assertTrue(tedTalkRecord.isEmpty(), "Expected TedTalkRecord to be empty due to missing author field");
+        assertEquals(2, tedTalkRecord.getLineNumber());
+        assertEquals("How to learn anything fast,,October 2021,12345678,98765,https://tedtalk.whatever.com",
+                tedTalkRecord.getRawRow());
+        assertEquals("Failed to parse row data: author cannot be empty", tedTalkRecord.getParseError());
     }
 
     @Test
@@ -0,0 +1,59 @@
+package com.iodigital.assignment.tedtalks.processor;
+
+import com.iodigital.assignment.tedtalks.importcsv.exception.DataParsingException;
+import com.iodigital.assignment.tedtalks.importcsv.reader.TedTalkFieldDecoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TedTalkFieldDecoderTest {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.ENGLISH);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "526000", "1,234,567", "1 234", "00042", ",5,", "9223372036854775807",
+            "9,223,372,036,854,775,807", "+15", "-0", "٣"})
+    void parseLong_ShouldMatchRegexBasedParsing(String value) throws DataParsingException {
+        assertEquals(Long.parseLong(value.replaceAll("[,\\s]", "")), TedTalkFieldDecoder.parseLong(value, "views"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "12a", ",", "1.5", "9223372036854775808", "1-2"})
+    void parseLong_WithInvalidNumber_ShouldKeepErrorMessage(String value) {
+        DataParsingException exception = assertThrows(DataParsingException.class, () -> TedTalkFieldDecoder.parseLong(value, "views"));
+        assertEquals("Invalid number format for field 'views", exception.getMessage());
+        assertInstanceOf(NumberFormatException.class, exception.getCause());
+    }
+
+    @Test
+    void parseLong_WithNegativeNumber_ShouldBeRejected() {
+        DataParsingException exception = assertThrows(DataParsingException.class, () -> TedTalkFieldDecoder.parseLong("-1,000", "likes"));
+        assertEquals("Field 'likes' must be non-negative, got: -1,000", exception.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"January 2020", "February 1999", "May 2023", "September 2021", "December 0001"})
+    void parseDate_ShouldMatchFormatterBasedParsing(String value) throws DataParsingException {
+        assertEquals(YearMonth.parse(value, DATE_FORMATTER).atDay(1), TedTalkFieldDecoder.parseDate(value));
+    }
+
+    @Test
+    void parseDate_ShouldReturnFirstDayOfMonth() throws DataParsingException {
+        assertEquals(LocalDate.of(2021, 10, 1), TedTalkFieldDecoder.parseDate("October 2021"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"may 2023", "MAY 2023", "Jan 2023", "Mayo 2023", "May 23", "May  2023", "May 0000",
+            "2023-05-01", "May", "Sept 2023"})
+    void parseDate_WithInvalidDate_ShouldKeepErrorMessage(String value) {
+        DataParsingException exception = assertThrows(DataParsingException.class, () -> TedTalkFieldDecoder.parseDate(value));
+        assertEquals("Invalid date format: " + value + ". Expected format: 'MMMM yyyy'", exception.getMessage());
+    }
+}
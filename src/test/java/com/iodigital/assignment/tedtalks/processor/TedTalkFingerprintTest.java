@@ -0,0 +1,81 @@
+package com.iodigital.assignment.tedtalks.processor;
+
+import com.iodigital.assignment.tedtalks.talk.model.TedTalk;
+import com.iodigital.assignment.tedtalks.talk.model.TedTalkFingerprint;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TedTalkFingerprintTest {
+
+    @Test
+    void of_ShouldBeStableForSameContent() {
+        assertEquals(TedTalkFingerprint.of(talk()), TedTalkFingerprint.of(talk()));
+    }
+
+    @Test
+    void of_ShouldIgnoreSurroundingWhitespace() {
+        TedTalk padded = talk();
+        padded.setTitle("  " + padded.getTitle() + " ");
+        padded.setLink(padded.getLink() + "\t");
+
+        assertEquals(TedTalkFingerprint.of(talk()), TedTalkFingerprint.of(padded));
+    }
+
+    @Test
+    void of_ShouldChangeWithAnyImportedField() {
+        List<Consumer<TedTalk>> changes = List.of(
+                talk -> talk.setTitle("Another Talk"),
+                talk -> talk.setSpeaker("Another Speaker"),
+                talk -> talk.setDate(LocalDate.of(2020, 6, 1)),
+                talk -> talk.setViews(1001L),
+                talk -> talk.setLikes(11L),
+                talk -> talk.setLink("https://www.ted.com/talks/another"),
+                talk -> talk.setLink(null),
+                talk -> talk.setLink(""));
+
+        long original = TedTalkFingerprint.of(talk());
+        for (Consumer<TedTalk> change : changes) {
+            TedTalk changed = talk();
+            change.accept(changed);
+            assertNotEquals(original, TedTalkFingerprint.of(changed));
+        }
+    }
+
+    @Test
+    void of_ShouldNotMixUpAdjacentFields() {
+        TedTalk shifted = talk();
+        shifted.setTitle("Talk Speaker");
+        shifted.setSpeaker("");
+        TedTalk original = talk();
+        original.setTitle("Talk");
+        original.setSpeaker("Speaker");
+
+        assertNotEquals(TedTalkFingerprint.of(original), TedTalkFingerprint.of(shifted));
+    }
+
+    @Test
+    void fingerprintOf_ShouldSetFingerprintOnTalkOnce() {
+        TedTalk talk = talk();
+
+        long fingerprint = TedTalkFingerprint.fingerprintOf(talk);
+
+        assertEquals(TedTalkFingerprint.of(talk), fingerprint);
+        assertEquals(fingerprint, talk.getFingerprint());
+    }
+
+    private static TedTalk talk() {
+        return TedTalk.builder()
+                .title("Talk")
+                .speaker("Speaker")
+                .date(LocalDate.of(2020, 5, 1))
+                .views(1000L)
+                .likes(10L)
+                .link("https://www.ted.com/talks/talk")
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.iodigital.assignment.tedtalks.processor;
+
+import com.iodigital.assignment.tedtalks.importcsv.model.TedTalkRecord;
+import com.iodigital.assignment.tedtalks.importcsv.validation.TedTalkRecordValidator;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TedTalkRecordValidatorTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static ValidatorFactory validatorFactory;
+    private static TedTalkRecordValidator validator;
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = new TedTalkRecordValidator(validatorFactory.getValidator());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validatorFactory.close();
+    }
+
+    static Stream<Consumer<TedTalkRecord>> changes() {
+        return Stream.of(
+                talk -> { },
+                talk -> talk.setTitle(null),
+                talk -> talk.setTitle(" \t"),
+                talk -> talk.setTitle("\u0001"),
+                talk -> talk.setTitle(" "),
+                talk -> talk.setSpeaker(""),
+                talk -> talk.setDate(null),
+                talk -> talk.setDate(TODAY),
+                talk -> talk.setDate(TODAY.plusDays(1)),
+                talk -> talk.setViews(0),
+                talk -> talk.setViews(-1),
+                talk -> talk.setLikes(-1),
+                talk -> talk.setLink(null),
+                talk -> talk.setLink(" "));
+    }
+
+    @ParameterizedTest
+    @MethodSource("changes")
+    void isValid_ShouldAgreeWithBeanValidation(Consumer<TedTalkRecord> change) {
+        TedTalkRecord talkRecord = validRecord();
+        change.accept(talkRecord);
+
+        assertEquals(validator.violationsOf(talkRecord).isEmpty(), validator.isValid(talkRecord, TODAY));
+    }
+
+    @Test
+    void violationsOf_ShouldDescribeRejectedRecord() {
+        TedTalkRecord talkRecord = validRecord();
+        talkRecord.setDate(TODAY.plusMonths(1));
+
+        assertFalse(validator.isValid(talkRecord, TODAY));
+        assertEquals("Date cannot be in the future", validator.violationsOf(talkRecord).iterator().next().getMessage());
+    }
+
+    private static TedTalkRecord validRecord() {
+        return TedTalkRecord.builder()
+                .title("Do schools kill creativity?")
+                .speaker("Ken Robinson")
+                .date(LocalDate.of(2006, 2, 1))
+                .views(72000000)
+                .likes(2100000)
+                .link("https://www.ted.com/talks/ken_robinson_do_schools_kill_creativity")
+                .build();
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -231,6 +232,23 @@ class TedTalkControllerTest {
         verify(tedTalkService, never()).importTedTalksFromCsv(any());
     }
 
+    @Test
+    void importTedTalksStream_WithCsvBody_ShouldReturnOk() throws Exception {
+        // Arrange
+        when(tedTalkService.importTedTalksFromCsv(eq("test.csv"), any(InputStream.class)))
+                .thenReturn(ImportFileDTO.builder().jobId(1L).build());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/tedtalks/import")
+                .param("fileName", "test.csv")
+                .contentType("text/csv")
+                .content("title,speaker,date\nTest Talk,Test Speaker,May 2020"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobId").value(1));
+
+        verify(tedTalkService).importTedTalksFromCsv(eq("test.csv"), any(InputStream.class));
+    }
+
     // Helper method to create a TedTalkDTO for testing
     private TedTalkDTO createTedTalkDTO(Long id, String title, String speaker) {
         TedTalkDTO dto = new TedTalkDTO();